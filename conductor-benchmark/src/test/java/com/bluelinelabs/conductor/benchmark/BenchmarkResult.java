@@ -0,0 +1,88 @@
+package com.bluelinelabs.conductor.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The timings and allocations measured for one operation at one backstack depth and nesting level.
+ */
+public class BenchmarkResult {
+
+    public final String name;
+    public final int depth;
+    public final int nesting;
+    public final long allocatedBytesPerOp;
+    private final long[] sortedSamples;
+
+    BenchmarkResult(@NonNull String name, int depth, int nesting, @NonNull long[] samples, long allocatedBytesPerOp) {
+        this.name = name;
+        this.depth = depth;
+        this.nesting = nesting;
+        this.allocatedBytesPerOp = allocatedBytesPerOp;
+
+        sortedSamples = samples.clone();
+        Arrays.sort(sortedSamples);
+    }
+
+    public long getMeanNanos() {
+        long total = 0;
+        for (long sample : sortedSamples) {
+            total += sample;
+        }
+        return sortedSamples.length > 0 ? total / sortedSamples.length : 0;
+    }
+
+    public long getPercentileNanos(int percentile) {
+        if (sortedSamples.length == 0) {
+            return 0;
+        }
+        int index = (int)Math.ceil(sortedSamples.length * percentile / 100.0) - 1;
+        return sortedSamples[Math.max(0, Math.min(sortedSamples.length - 1, index))];
+    }
+
+    public double getOpsPerSecond() {
+        long mean = getMeanNanos();
+        return mean > 0 ? 1e9 / mean : 0;
+    }
+
+    void appendJson(@NonNull StringBuilder json) {
+        json.append("{\"name\": ").append(quote(name))
+                .append(", \"depth\": ").append(depth)
+                .append(", \"nesting\": ").append(nesting)
+                .append(", \"iterations\": ").append(sortedSamples.length)
+                .append(", \"meanNanos\": ").append(getMeanNanos())
+                .append(", \"p50Nanos\": ").append(getPercentileNanos(50))
+                .append(", \"p90Nanos\": ").append(getPercentileNanos(90))
+                .append(", \"p99Nanos\": ").append(getPercentileNanos(99))
+                .append(", \"minNanos\": ").append(sortedSamples.length > 0 ? sortedSamples[0] : 0)
+                .append(", \"opsPerSecond\": ").append(String.format(Locale.US, "%.1f", getOpsPerSecond()))
+                .append(", \"allocatedBytesPerOp\": ").append(allocatedBytesPerOp)
+                .append('}');
+    }
+
+    @Override
+    public String toString() {
+        return name + " (depth " + depth + ", nesting " + nesting + "): "
+                + getMeanNanos() / 1000 + "us mean, "
+                + getPercentileNanos(90) / 1000 + "us p90, "
+                + allocatedBytesPerOp + " bytes/op";
+    }
+
+    static String quote(@NonNull String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format(Locale.US, "\\u%04x", (int)c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+}
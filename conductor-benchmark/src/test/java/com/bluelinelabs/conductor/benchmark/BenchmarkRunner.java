@@ -0,0 +1,114 @@
+package com.bluelinelabs.conductor.benchmark;
+
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs {@link Operation}s a fixed number of times, recording how long each run took and how much it allocated, and
+ * writes the collected {@link BenchmarkResult}s out as JSON.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * A single benchmarked operation. Only {@link #run()} is measured.
+     */
+    public interface Operation {
+        void setUp();
+        void run();
+    }
+
+    private final int warmupIterations;
+    private final int measuredIterations;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final List<BenchmarkResult> results = new ArrayList<>();
+
+    public BenchmarkRunner(int warmupIterations, int measuredIterations) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+
+        Object threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean)threadBean).isThreadAllocatedMemorySupported()) {
+            allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+            allocationBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            allocationBean = null;
+        }
+    }
+
+    @NonNull
+    public BenchmarkResult measure(@NonNull String name, int depth, int nesting, @NonNull Operation operation) {
+        for (int i = 0; i < warmupIterations; i++) {
+            operation.setUp();
+            operation.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long[] samples = new long[measuredIterations];
+        long allocatedBytes = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            operation.setUp();
+
+            long allocatedBefore = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+            long start = System.nanoTime();
+            operation.run();
+            samples[i] = System.nanoTime() - start;
+            long allocatedAfter = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) : 0;
+
+            allocatedBytes += allocatedAfter - allocatedBefore;
+        }
+
+        long allocatedBytesPerOp = allocationBean != null ? allocatedBytes / measuredIterations : -1;
+        BenchmarkResult result = new BenchmarkResult(name, depth, nesting, samples, allocatedBytesPerOp);
+        results.add(result);
+        return result;
+    }
+
+    @NonNull
+    public List<BenchmarkResult> getResults() {
+        return results;
+    }
+
+    /**
+     * Writes all results measured so far to the passed file, replacing its contents.
+     *
+     * @param file The file to write to
+     * @param suite The name of the group of benchmarks these results belong to
+     * @param version The version of Conductor that was measured, if known
+     */
+    public void writeJson(@NonNull File file, @NonNull String suite, String version) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"suite\": ").append(BenchmarkResult.quote(suite)).append(",\n");
+        json.append("  \"version\": ").append(version != null ? BenchmarkResult.quote(version) : "null").append(",\n");
+        json.append("  \"timestamp\": ").append(System.currentTimeMillis()).append(",\n");
+        json.append("  \"warmupIterations\": ").append(warmupIterations).append(",\n");
+        json.append("  \"measuredIterations\": ").append(measuredIterations).append(",\n");
+        json.append("  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            json.append(i == 0 ? "\n    " : ",\n    ");
+            results.get(i).appendJson(json);
+        }
+        json.append("\n  ]\n}\n");
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(json.toString());
+        } finally {
+            writer.close();
+        }
+    }
+
+}
@@ -0,0 +1,269 @@
+package com.bluelinelabs.conductor.benchmark;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import com.bluelinelabs.conductor.Conductor;
+import com.bluelinelabs.conductor.Controller;
+import com.bluelinelabs.conductor.ControllerFactory;
+import com.bluelinelabs.conductor.Router;
+import com.bluelinelabs.conductor.RouterTransaction;
+import com.bluelinelabs.conductor.benchmark.BenchmarkRunner.Operation;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the core navigation operations of a {@link Router} across backstack depths and levels of nested child
+ * Routers. Results are printed and written to {@code build/benchmark-results/navigation.json} so they can be compared
+ * between releases.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NavigationBenchmarks {
+
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int MEASURED_ITERATIONS = 50;
+    private static final int LOOKUPS_PER_ITERATION = 100;
+
+    private static final int[] DEPTHS = { 1, 10, 50 };
+    private static final int[] NESTING_LEVELS = { 0, 2 };
+
+    private static final String ROOT_TAG = "root";
+
+    private static final BenchmarkRunner RUNNER = new BenchmarkRunner(WARMUP_ITERATIONS, MEASURED_ITERATIONS);
+
+    private ActivityProxy activityProxy;
+    private Router router;
+
+    @Before
+    public void setup() {
+        activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        File outputDir = new File(System.getProperty("conductor.benchmark.outputDir", "build/benchmark-results"));
+        File outputFile = new File(outputDir, "navigation.json");
+        RUNNER.writeJson(outputFile, "navigation", System.getProperty("conductor.benchmark.version"));
+
+        System.out.println("Wrote " + RUNNER.getResults().size() + " results to " + outputFile.getAbsolutePath());
+    }
+
+    @Test
+    public void push() {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                report(RUNNER.measure("push", depth, nesting, new Operation() {
+                    @Override
+                    public void setUp() {
+                        router.setBackstack(backstack(depth, nesting), MockChangeHandler.defaultHandler());
+                    }
+
+                    @Override
+                    public void run() {
+                        router.pushController(transaction(nesting, null));
+                    }
+                }));
+                assertEquals(depth + 1, router.getBackstackSize());
+            }
+        }
+    }
+
+    @Test
+    public void pop() {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                report(RUNNER.measure("pop", depth, nesting, new Operation() {
+                    @Override
+                    public void setUp() {
+                        router.setBackstack(backstack(depth + 1, nesting), MockChangeHandler.defaultHandler());
+                    }
+
+                    @Override
+                    public void run() {
+                        router.popCurrentController();
+                    }
+                }));
+                assertEquals(depth, router.getBackstackSize());
+            }
+        }
+    }
+
+    @Test
+    public void popToTag() {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                report(RUNNER.measure("popToTag", depth, nesting, new Operation() {
+                    @Override
+                    public void setUp() {
+                        router.setBackstack(backstack(depth + 1, nesting), MockChangeHandler.defaultHandler());
+                    }
+
+                    @Override
+                    public void run() {
+                        router.popToTag(ROOT_TAG);
+                    }
+                }));
+                assertEquals(1, router.getBackstackSize());
+            }
+        }
+    }
+
+    @Test
+    public void setBackstack() {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                report(RUNNER.measure("setBackstack", depth, nesting, new Operation() {
+                    List<RouterTransaction> newBackstack;
+
+                    @Override
+                    public void setUp() {
+                        List<RouterTransaction> oldBackstack = backstack(depth, nesting);
+                        router.setBackstack(oldBackstack, MockChangeHandler.defaultHandler());
+
+                        // Keep the bottom half and replace the rest, so the diff has work to do on both sides.
+                        newBackstack = new ArrayList<>(oldBackstack.subList(0, depth / 2));
+                        while (newBackstack.size() < depth) {
+                            newBackstack.add(transaction(nesting, newBackstack.isEmpty() ? ROOT_TAG : null));
+                        }
+                    }
+
+                    @Override
+                    public void run() {
+                        router.setBackstack(newBackstack, MockChangeHandler.defaultHandler());
+                    }
+                }));
+                assertEquals(depth, router.getBackstackSize());
+            }
+        }
+    }
+
+    @Test
+    public void lookup() {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                router.setBackstack(backstack(depth, nesting), MockChangeHandler.defaultHandler());
+                final String rootInstanceId = router.getBackstack().get(0).controller().getInstanceId();
+
+                report(RUNNER.measure("lookup", depth, nesting, new Operation() {
+                    @Override
+                    public void setUp() { }
+
+                    @Override
+                    public void run() {
+                        // Looks up the root, which is as far from the top of the backstack as possible
+                        for (int i = 0; i < LOOKUPS_PER_ITERATION; i++) {
+                            router.getControllerWithTag(ROOT_TAG);
+                            router.getControllerWithInstanceId(rootInstanceId);
+                        }
+                    }
+                }));
+                assertEquals(rootInstanceId, router.getControllerWithTag(ROOT_TAG).getInstanceId());
+            }
+        }
+    }
+
+    @Test
+    public void saveInstanceState() {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                router.setBackstack(backstack(depth, nesting), MockChangeHandler.defaultHandler());
+
+                report(RUNNER.measure("saveInstanceState", depth, nesting, new Operation() {
+                    @Override
+                    public void setUp() { }
+
+                    @Override
+                    public void run() {
+                        router.saveInstanceState(new Bundle());
+                    }
+                }));
+            }
+        }
+    }
+
+    @Test
+    public void restoreInstanceState() {
+        measureRestore("restoreInstanceState");
+    }
+
+    @Test
+    public void restoreInstanceStateWithFactory() {
+        Conductor.registerControllerFactory(NestingController.class, new ControllerFactory() {
+            @NonNull
+            @Override
+            public Controller newInstance(@NonNull Bundle args) {
+                return new NestingController(args);
+            }
+        });
+
+        try {
+            measureRestore("restoreInstanceStateWithFactory");
+        } finally {
+            Conductor.unregisterControllerFactory(NestingController.class);
+        }
+    }
+
+    private void measureRestore(@NonNull String name) {
+        for (final int depth : DEPTHS) {
+            for (final int nesting : NESTING_LEVELS) {
+                router.setBackstack(backstack(depth, nesting), MockChangeHandler.defaultHandler());
+                final Bundle savedState = new Bundle();
+                router.saveInstanceState(savedState);
+
+                final Router[] restoredRouter = new Router[1];
+                report(RUNNER.measure(name, depth, nesting, new Operation() {
+                    @Override
+                    public void setUp() {
+                        ActivityProxy restoredActivityProxy = new ActivityProxy().create(null).start().resume();
+                        restoredRouter[0] = Conductor.attachRouter(restoredActivityProxy.getActivity(), restoredActivityProxy.getView(), null);
+                    }
+
+                    @Override
+                    public void run() {
+                        restoredRouter[0].restoreInstanceState(savedState);
+                        restoredRouter[0].rebindIfNeeded();
+                    }
+                }));
+                assertEquals(depth, restoredRouter[0].getBackstackSize());
+            }
+        }
+    }
+
+    @NonNull
+    private static List<RouterTransaction> backstack(int depth, int nesting) {
+        List<RouterTransaction> backstack = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            backstack.add(transaction(nesting, i == 0 ? ROOT_TAG : null));
+        }
+        return backstack;
+    }
+
+    @NonNull
+    private static RouterTransaction transaction(int nesting, String tag) {
+        return RouterTransaction.with(NestingController.withLevels(nesting))
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler())
+                .tag(tag);
+    }
+
+    private static void report(@NonNull BenchmarkResult result) {
+        System.out.println(result);
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.bluelinelabs.conductor.benchmark;
+
+import android.os.Bundle;
+import android.support.annotation.IdRes;
+import android.support.annotation.NonNull;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.bluelinelabs.conductor.Controller;
+import com.bluelinelabs.conductor.Router;
+import com.bluelinelabs.conductor.RouterTransaction;
+import com.bluelinelabs.conductor.util.AttachFakingFrameLayout;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+
+/**
+ * A Controller that hosts a chain of child Controllers the given number of levels deep.
+ */
+public class NestingController extends Controller {
+
+    @IdRes private static final int CHILD_CONTAINER_ID = 4242;
+
+    private static final String KEY_LEVELS = "NestingController.levels";
+
+    public NestingController(Bundle args) {
+        super(args);
+    }
+
+    @NonNull
+    public static NestingController withLevels(int levels) {
+        Bundle args = new Bundle();
+        args.putInt(KEY_LEVELS, levels);
+        return new NestingController(args);
+    }
+
+    @NonNull
+    @Override
+    protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+        FrameLayout view = new AttachFakingFrameLayout(inflater.getContext());
+
+        FrameLayout childContainer = new FrameLayout(inflater.getContext());
+        childContainer.setId(CHILD_CONTAINER_ID);
+        view.addView(childContainer);
+
+        int levels = getArgs().getInt(KEY_LEVELS);
+        if (levels > 0) {
+            Router childRouter = getChildRouter(childContainer);
+            if (!childRouter.hasRootController()) {
+                childRouter.setRoot(RouterTransaction.with(withLevels(levels - 1))
+                        .pushChangeHandler(MockChangeHandler.defaultHandler())
+                        .popChangeHandler(MockChangeHandler.defaultHandler()));
+            }
+        }
+
+        return view;
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.client.api.JavaEvaluator;
+import com.android.tools.lint.detector.api.Category;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Implementation;
+import com.android.tools.lint.detector.api.Issue;
+import com.android.tools.lint.detector.api.JavaContext;
+import com.android.tools.lint.detector.api.Scope;
+import com.android.tools.lint.detector.api.Severity;
+import com.intellij.psi.JavaElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiNewExpression;
+import com.intellij.psi.util.PsiTreeUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class ControllerBlockingCallDetector extends Detector implements Detector.JavaPsiScanner {
+
+    public static final Issue ISSUE =
+            Issue.create("ControllerBlockingCall", "Blocking call in a Controller navigation callback",
+                    "onCreateView, onAttach and onChangeStarted all run on the main thread while a change between"
+                            + " Controllers is in progress. Disk, database or network access in these callbacks delays"
+                            + " the change and drops frames from its animation. Load this data in the background and"
+                            + " bind it once it's available instead.",
+                    Category.PERFORMANCE, 6, Severity.WARNING,
+                    new Implementation(ControllerBlockingCallDetector.class, Scope.JAVA_FILE_SCOPE));
+
+    private static final String CLASS_CONTROLLER = "com.bluelinelabs.conductor.Controller";
+
+    private static final List<String> CALLBACKS = Arrays.asList("onCreateView", "onAttach", "onChangeStarted");
+
+    /** Each entry is a class followed by the methods on it (or its subclasses) that block. */
+    private static final String[][] BLOCKING_METHODS = {
+            { "android.database.sqlite.SQLiteDatabase", "query", "queryWithFactory", "rawQuery", "rawQueryWithFactory", "execSQL",
+                    "insert", "insertOrThrow", "insertWithOnConflict", "update", "updateWithOnConflict", "delete", "replace",
+                    "replaceOrThrow" },
+            { "android.database.sqlite.SQLiteOpenHelper", "getReadableDatabase", "getWritableDatabase" },
+            { "android.content.ContentResolver", "query", "insert", "bulkInsert", "update", "delete", "applyBatch",
+                    "openInputStream", "openOutputStream", "openFileDescriptor" },
+            { "android.content.SharedPreferences.Editor", "commit" },
+            { "java.net.URL", "openConnection", "openStream" },
+            { "java.net.URLConnection", "connect", "getInputStream", "getOutputStream" },
+            { "java.lang.Thread", "sleep", "join" },
+    };
+
+    private static final List<String> BLOCKING_CONSTRUCTORS = Arrays.asList(
+            "java.io.FileInputStream",
+            "java.io.FileOutputStream",
+            "java.io.FileReader",
+            "java.io.FileWriter",
+            "java.io.RandomAccessFile");
+
+    public ControllerBlockingCallDetector() { }
+
+    @Override
+    public List<String> getApplicableMethodNames() {
+        Set<String> names = new LinkedHashSet<>();
+        for (String[] entry : BLOCKING_METHODS) {
+            names.addAll(Arrays.asList(entry).subList(1, entry.length));
+        }
+        return new ArrayList<>(names);
+    }
+
+    @Override
+    public List<String> getApplicableConstructorTypes() {
+        return BLOCKING_CONSTRUCTORS;
+    }
+
+    @Override
+    public void visitMethod(JavaContext context, JavaElementVisitor visitor, PsiMethodCallExpression call, PsiMethod method) {
+        String callback = getControllerCallback(context.getEvaluator(), call);
+        if (callback == null) {
+            return;
+        }
+
+        JavaEvaluator evaluator = context.getEvaluator();
+        String name = method.getName();
+        for (String[] entry : BLOCKING_METHODS) {
+            if (Arrays.asList(entry).subList(1, entry.length).contains(name) && evaluator.isMemberInSubClassOf(method, entry[0], false)) {
+                report(context, call, name, callback);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void visitConstructor(JavaContext context, JavaElementVisitor visitor, PsiNewExpression node, PsiMethod constructor) {
+        String callback = getControllerCallback(context.getEvaluator(), node);
+        if (callback != null) {
+            PsiClass containingClass = constructor.getContainingClass();
+            report(context, node, "new " + (containingClass != null ? containingClass.getName() : constructor.getName()), callback);
+        }
+    }
+
+    private static void report(JavaContext context, PsiElement call, String name, String callback) {
+        String message = String.format(
+                "`%1$s` blocks the main thread and should not be called from `%2$s`", name, callback);
+        context.report(ISSUE, call, context.getLocation(call), message);
+    }
+
+    /**
+     * Returns the name of the Controller callback this element is directly called from, if any. Calls made from
+     * anonymous classes, such as click listeners, aren't run as part of the callback and are ignored.
+     */
+    private static String getControllerCallback(JavaEvaluator evaluator, PsiElement element) {
+        PsiMethod method = PsiTreeUtil.getParentOfType(element, PsiMethod.class, true);
+        if (method == null || !CALLBACKS.contains(method.getName())) {
+            return null;
+        }
+
+        PsiClass containingClass = method.getContainingClass();
+        if (containingClass == null || !evaluator.extendsClass(containingClass, CLASS_CONTROLLER, true)) {
+            return null;
+        }
+        return method.getName();
+    }
+}
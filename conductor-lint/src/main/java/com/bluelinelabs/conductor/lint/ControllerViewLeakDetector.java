@@ -0,0 +1,157 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.client.api.JavaEvaluator;
+import com.android.tools.lint.detector.api.Category;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Implementation;
+import com.android.tools.lint.detector.api.Issue;
+import com.android.tools.lint.detector.api.JavaContext;
+import com.android.tools.lint.detector.api.Scope;
+import com.android.tools.lint.detector.api.Severity;
+import com.intellij.psi.JavaRecursiveElementVisitor;
+import com.intellij.psi.PsiAnnotation;
+import com.intellij.psi.PsiAssignmentExpression;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiModifierList;
+import com.intellij.psi.PsiReferenceExpression;
+import com.intellij.psi.PsiType;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public final class ControllerViewLeakDetector extends Detector implements Detector.JavaPsiScanner {
+
+    public static final Issue ISSUE =
+            Issue.create("ControllerViewLeak", "View reference not cleared in onDestroyView",
+                    "Controllers outlive their views. Unless the retain view mode is RETAIN_DETACH, the view is released"
+                            + " every time the Controller is detached, so any field still pointing at it (or at one of its"
+                            + " children) keeps the whole view hierarchy and its Context in memory. Set these fields to"
+                            + " null in onDestroyView.",
+                    Category.PERFORMANCE, 6, Severity.WARNING,
+                    new Implementation(ControllerViewLeakDetector.class, Scope.JAVA_FILE_SCOPE));
+
+    private static final String CLASS_VIEW = "android.view.View";
+    private static final String BUTTERKNIFE_PACKAGE = "butterknife.";
+
+    public ControllerViewLeakDetector() { }
+
+    @Override
+    public List<String> applicableSuperClasses() {
+        return Collections.singletonList("com.bluelinelabs.conductor.Controller");
+    }
+
+    @Override
+    public void checkClass(JavaContext context, PsiClass declaration) {
+        if (setsRetainDetach(declaration)) {
+            // The view is kept for as long as the Controller is, so holding on to it doesn't leak anything
+            return;
+        }
+
+        final JavaEvaluator evaluator = context.getEvaluator();
+
+        final Set<PsiField> clearedFields = new HashSet<>();
+        final boolean[] unbinds = new boolean[1];
+        for (PsiMethod method : declaration.findMethodsByName("onDestroyView", false)) {
+            PsiCodeBlock body = method.getBody();
+            if (body == null) {
+                continue;
+            }
+
+            body.accept(new JavaRecursiveElementVisitor() {
+                @Override
+                public void visitAssignmentExpression(PsiAssignmentExpression expression) {
+                    super.visitAssignmentExpression(expression);
+
+                    PsiExpression lhs = expression.getLExpression();
+                    PsiExpression rhs = expression.getRExpression();
+                    if (lhs instanceof PsiReferenceExpression && rhs != null && "null".equals(rhs.getText())) {
+                        PsiElement resolved = ((PsiReferenceExpression)lhs).resolve();
+                        if (resolved instanceof PsiField) {
+                            clearedFields.add((PsiField)resolved);
+                        }
+                    }
+                }
+
+                @Override
+                public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+                    super.visitMethodCallExpression(expression);
+
+                    if ("unbind".equals(expression.getMethodExpression().getReferenceName())) {
+                        unbinds[0] = true;
+                    }
+                }
+            });
+        }
+
+        for (PsiField field : declaration.getFields()) {
+            if (evaluator.isStatic(field) || clearedFields.contains(field) || !isView(evaluator, field.getType())) {
+                continue;
+            }
+
+            if (unbinds[0] && isBound(field)) {
+                continue;
+            }
+
+            String message = String.format(
+                    "This field holds a View but is not set to null in onDestroyView, which leaks the view hierarchy (`%1$s`)",
+                    field.getName());
+            context.report(ISSUE, field, context.getNameLocation(field), message);
+        }
+    }
+
+    private static boolean setsRetainDetach(final PsiClass declaration) {
+        final boolean[] retainDetach = new boolean[1];
+        declaration.accept(new JavaRecursiveElementVisitor() {
+            @Override
+            public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+                super.visitMethodCallExpression(expression);
+
+                if (RetainDetachChildRouterDetector.isRetainDetachCall(expression)) {
+                    retainDetach[0] = true;
+                }
+            }
+
+            @Override
+            public void visitClass(PsiClass aClass) {
+                // Nested classes are checked on their own
+                if (aClass == declaration) {
+                    super.visitClass(aClass);
+                }
+            }
+        });
+        return retainDetach[0];
+    }
+
+    private static boolean isView(JavaEvaluator evaluator, PsiType type) {
+        if (!(type instanceof PsiClassType)) {
+            return false;
+        }
+
+        PsiClass typeClass = ((PsiClassType)type).resolve();
+        return typeClass != null && evaluator.extendsClass(typeClass, CLASS_VIEW, false);
+    }
+
+    private static boolean isBound(PsiField field) {
+        PsiModifierList modifiers = field.getModifierList();
+        if (modifiers == null) {
+            return false;
+        }
+
+        for (PsiAnnotation annotation : modifiers.getAnnotations()) {
+            String name = annotation.getQualifiedName();
+            if (name != null && name.startsWith(BUTTERKNIFE_PACKAGE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
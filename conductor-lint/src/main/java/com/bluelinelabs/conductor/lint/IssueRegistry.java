@@ -9,6 +9,10 @@ public final class IssueRegistry extends com.android.tools.lint.client.api.Issue
     @Override public List<Issue> getIssues() {
         return Arrays.asList(
                 ControllerIssueDetector.ISSUE,
-                ControllerChangeHandlerIssueDetector.ISSUE);
+                ControllerChangeHandlerIssueDetector.ISSUE,
+                ControllerViewLeakDetector.ISSUE,
+                ControllerBlockingCallDetector.ISSUE,
+                ReusableChangeHandlerDetector.ISSUE,
+                RetainDetachChildRouterDetector.ISSUE);
     }
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.detector.api.Category;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Implementation;
+import com.android.tools.lint.detector.api.Issue;
+import com.android.tools.lint.detector.api.JavaContext;
+import com.android.tools.lint.detector.api.Scope;
+import com.android.tools.lint.detector.api.Severity;
+import com.intellij.psi.JavaRecursiveElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiMethodCallExpression;
+import com.intellij.psi.PsiReferenceExpression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class RetainDetachChildRouterDetector extends Detector implements Detector.JavaPsiScanner {
+
+    public static final Issue ISSUE =
+            Issue.create("RetainDetachWithChildRouters", "RETAIN_DETACH used by a Controller with child Routers",
+                    "Controllers using RETAIN_DETACH keep their view after being detached. When they host child"
+                            + " Routers, the views of every Controller in those Routers are kept along with it, so the"
+                            + " memory retained by a single entry in the backstack grows with the whole hierarchy below"
+                            + " it. Use the default RELEASE_DETACH and restore state from saved view state instead.",
+                    Category.PERFORMANCE, 6, Severity.WARNING,
+                    new Implementation(RetainDetachChildRouterDetector.class, Scope.JAVA_FILE_SCOPE));
+
+    private static final String RETAIN_DETACH = "RETAIN_DETACH";
+
+    public RetainDetachChildRouterDetector() { }
+
+    @Override
+    public List<String> applicableSuperClasses() {
+        return Collections.singletonList("com.bluelinelabs.conductor.Controller");
+    }
+
+    @Override
+    public void checkClass(JavaContext context, final PsiClass declaration) {
+        final List<PsiMethodCallExpression> retainDetachCalls = new ArrayList<>();
+        final boolean[] createsChildRouters = new boolean[1];
+
+        declaration.accept(new JavaRecursiveElementVisitor() {
+            @Override
+            public void visitMethodCallExpression(PsiMethodCallExpression expression) {
+                super.visitMethodCallExpression(expression);
+
+                String name = expression.getMethodExpression().getReferenceName();
+                if ("getChildRouter".equals(name)) {
+                    createsChildRouters[0] = true;
+                } else if (isRetainDetachCall(expression)) {
+                    retainDetachCalls.add(expression);
+                }
+            }
+
+            @Override
+            public void visitClass(PsiClass aClass) {
+                // Nested classes are checked on their own
+                if (aClass == declaration) {
+                    super.visitClass(aClass);
+                }
+            }
+        });
+
+        if (!createsChildRouters[0]) {
+            return;
+        }
+
+        for (PsiMethodCallExpression call : retainDetachCalls) {
+            String message = String.format(
+                    "This Controller creates child Routers, so RETAIN_DETACH keeps all of their views in memory (`%1$s`)",
+                    declaration.getQualifiedName());
+            context.report(ISSUE, call, context.getLocation(call), message);
+        }
+    }
+
+    static boolean isRetainDetachCall(PsiMethodCallExpression expression) {
+        if (!"setRetainViewMode".equals(expression.getMethodExpression().getReferenceName())) {
+            return false;
+        }
+
+        PsiExpression[] arguments = expression.getArgumentList().getExpressions();
+        return arguments.length == 1 && arguments[0] instanceof PsiReferenceExpression
+                && RETAIN_DETACH.equals(((PsiReferenceExpression)arguments[0]).getReferenceName());
+    }
+}
@@ -0,0 +1,128 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.client.api.JavaEvaluator;
+import com.android.tools.lint.detector.api.Category;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Implementation;
+import com.android.tools.lint.detector.api.Issue;
+import com.android.tools.lint.detector.api.JavaContext;
+import com.android.tools.lint.detector.api.Scope;
+import com.android.tools.lint.detector.api.Severity;
+import com.intellij.psi.JavaRecursiveElementVisitor;
+import com.intellij.psi.PsiClass;
+import com.intellij.psi.PsiClassType;
+import com.intellij.psi.PsiCodeBlock;
+import com.intellij.psi.PsiExpression;
+import com.intellij.psi.PsiField;
+import com.intellij.psi.PsiMethod;
+import com.intellij.psi.PsiReturnStatement;
+import com.intellij.psi.PsiType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public final class ReusableChangeHandlerDetector extends Detector implements Detector.JavaPsiScanner {
+
+    public static final Issue ISSUE =
+            Issue.create("ReusableChangeHandlerState", "Reusable ControllerChangeHandler with animator state",
+                    "A reusable ControllerChangeHandler is used for more than one change without being copied. If it"
+                            + " keeps the Animator it's running in a field, starting the next change overwrites it while"
+                            + " the previous one may still be running, so that animation can no longer be ended or"
+                            + " canceled and the Controllers involved are kept in memory until it finishes. Only return"
+                            + " true from isReusable() on handlers without per-change state.",
+                    Category.PERFORMANCE, 6, Severity.WARNING,
+                    new Implementation(ReusableChangeHandlerDetector.class, Scope.JAVA_FILE_SCOPE));
+
+    private static final String CLASS_ANIMATOR_CHANGE_HANDLER = "com.bluelinelabs.conductor.changehandler.AnimatorChangeHandler";
+
+    private static final List<String> ANIMATOR_CLASSES = Arrays.asList(
+            "android.animation.Animator",
+            "android.view.ViewPropertyAnimator",
+            "android.transition.Transition");
+
+    public ReusableChangeHandlerDetector() { }
+
+    @Override
+    public List<String> applicableSuperClasses() {
+        return Collections.singletonList("com.bluelinelabs.conductor.ControllerChangeHandler");
+    }
+
+    @Override
+    public void checkClass(JavaContext context, PsiClass declaration) {
+        final JavaEvaluator evaluator = context.getEvaluator();
+
+        for (PsiMethod method : declaration.findMethodsByName("isReusable", false)) {
+            if (method.getParameterList().getParametersCount() != 0 || !returnsTrue(method)) {
+                continue;
+            }
+
+            String stateHolder = getAnimatorStateHolder(evaluator, declaration);
+            if (stateHolder != null) {
+                String message = String.format(
+                        "This ControllerChangeHandler keeps animator state (`%1$s`) and should not be reusable", stateHolder);
+                context.report(ISSUE, method, context.getNameLocation(method), message);
+            }
+        }
+    }
+
+    private static boolean returnsTrue(PsiMethod method) {
+        PsiCodeBlock body = method.getBody();
+        if (body == null) {
+            return false;
+        }
+
+        final boolean[] returnsTrue = new boolean[1];
+        body.accept(new JavaRecursiveElementVisitor() {
+            @Override
+            public void visitReturnStatement(PsiReturnStatement statement) {
+                super.visitReturnStatement(statement);
+
+                PsiExpression value = statement.getReturnValue();
+                if (value != null && "true".equals(value.getText())) {
+                    returnsTrue[0] = true;
+                }
+            }
+
+            @Override
+            public void visitClass(PsiClass aClass) {
+                // Returns in local and anonymous classes don't belong to isReusable()
+            }
+        });
+        return returnsTrue[0];
+    }
+
+    /**
+     * Returns the name of the field or superclass that holds on to animator state, or null if there is none.
+     */
+    private static String getAnimatorStateHolder(JavaEvaluator evaluator, PsiClass declaration) {
+        if (evaluator.extendsClass(declaration, CLASS_ANIMATOR_CHANGE_HANDLER, false)) {
+            return "AnimatorChangeHandler";
+        }
+
+        for (PsiField field : declaration.getAllFields()) {
+            if (!evaluator.isStatic(field) && isAnimator(evaluator, field.getType())) {
+                return field.getName();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAnimator(JavaEvaluator evaluator, PsiType type) {
+        if (!(type instanceof PsiClassType)) {
+            return false;
+        }
+
+        PsiClass typeClass = ((PsiClassType)type).resolve();
+        if (typeClass == null) {
+            return false;
+        }
+
+        for (String animatorClass : ANIMATOR_CLASSES) {
+            if (evaluator.extendsClass(typeClass, animatorClass, false)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
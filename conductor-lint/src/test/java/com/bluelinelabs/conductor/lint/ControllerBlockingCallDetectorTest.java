@@ -0,0 +1,63 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.checks.infrastructure.LintDetectorTest;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Issue;
+
+import org.intellij.lang.annotations.Language;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ControllerBlockingCallDetectorTest extends LintDetectorTest {
+
+    private static final String NO_WARNINGS = "No warnings.";
+    private static final String BLOCKING_WARNING =
+            "src/test/SampleController.java:5: Warning: sleep blocks the main thread and should not be called from onAttach [ControllerBlockingCall]\n"
+            + "            Thread.sleep(100);\n"
+            + "            ~~~~~~~~~~~~~~~~~\n"
+            + "0 errors, 1 warnings\n";
+
+    public void testBlockingCallInOnAttach() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    protected void onAttach(android.view.View view) {\n"
+                + "        try {\n"
+                + "            Thread.sleep(100);\n"
+                + "        } catch (InterruptedException e) { }\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(BLOCKING_WARNING);
+    }
+
+    public void testBlockingCallOutsideOfCallbacks() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    protected void onDetach(android.view.View view) {\n"
+                + "        try {\n"
+                + "            Thread.sleep(100);\n"
+                + "        } catch (InterruptedException e) { }\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(NO_WARNINGS);
+    }
+
+    @Override
+    protected Detector getDetector() {
+        return new ControllerBlockingCallDetector();
+    }
+
+    @Override
+    protected List<Issue> getIssues() {
+        return Collections.singletonList(ControllerBlockingCallDetector.ISSUE);
+    }
+
+    @Override
+    protected boolean allowCompilationErrors() {
+        return true;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.checks.infrastructure.LintDetectorTest;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Issue;
+
+import org.intellij.lang.annotations.Language;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ControllerViewLeakDetectorTest extends LintDetectorTest {
+
+    private static final String NO_WARNINGS = "No warnings.";
+    private static final String LEAK_WARNING =
+            "src/test/SampleController.java:3: Warning: This field holds a View but is not set to null in onDestroyView, which leaks the view hierarchy (title) [ControllerViewLeak]\n"
+            + "    private android.widget.TextView title;\n"
+            + "                                    ~~~~~\n"
+            + "0 errors, 1 warnings\n";
+
+    public void testWithUnclearedView() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    private android.widget.TextView title;\n"
+                + "    private android.view.View content;\n"
+                + "    private String name;\n"
+                + "    protected void onDestroyView(android.view.View view) {\n"
+                + "        content = null;\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(LEAK_WARNING);
+    }
+
+    public void testWithClearedViews() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    private android.widget.TextView title;\n"
+                + "    private android.view.View content;\n"
+                + "    protected void onDestroyView(android.view.View view) {\n"
+                + "        title = null;\n"
+                + "        this.content = null;\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(NO_WARNINGS);
+    }
+
+    public void testWithRetainDetach() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    private android.widget.TextView title;\n"
+                + "    public SampleController() {\n"
+                + "        setRetainViewMode(RetainViewMode.RETAIN_DETACH);\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(NO_WARNINGS);
+    }
+
+    @Override
+    protected Detector getDetector() {
+        return new ControllerViewLeakDetector();
+    }
+
+    @Override
+    protected List<Issue> getIssues() {
+        return Collections.singletonList(ControllerViewLeakDetector.ISSUE);
+    }
+
+    @Override
+    protected boolean allowCompilationErrors() {
+        return true;
+    }
+}
@@ -0,0 +1,63 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.checks.infrastructure.LintDetectorTest;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Issue;
+
+import org.intellij.lang.annotations.Language;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class RetainDetachChildRouterDetectorTest extends LintDetectorTest {
+
+    private static final String NO_WARNINGS = "No warnings.";
+    private static final String RETAIN_DETACH_WARNING =
+            "src/test/SampleController.java:4: Warning: This Controller creates child Routers, so RETAIN_DETACH keeps all of their views in memory (test.SampleController) [RetainDetachWithChildRouters]\n"
+            + "        setRetainViewMode(RetainViewMode.RETAIN_DETACH);\n"
+            + "        ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~\n"
+            + "0 errors, 1 warnings\n";
+
+    public void testRetainDetachWithChildRouter() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    public SampleController() {\n"
+                + "        setRetainViewMode(RetainViewMode.RETAIN_DETACH);\n"
+                + "    }\n"
+                + "    protected android.view.View onCreateView(android.view.LayoutInflater inflater, android.view.ViewGroup container) {\n"
+                + "        getChildRouter(container, null);\n"
+                + "        return null;\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(RETAIN_DETACH_WARNING);
+    }
+
+    public void testRetainDetachWithoutChildRouter() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleController extends com.bluelinelabs.conductor.Controller {\n"
+                + "    public SampleController() {\n"
+                + "        setRetainViewMode(RetainViewMode.RETAIN_DETACH);\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(NO_WARNINGS);
+    }
+
+    @Override
+    protected Detector getDetector() {
+        return new RetainDetachChildRouterDetector();
+    }
+
+    @Override
+    protected List<Issue> getIssues() {
+        return Collections.singletonList(RetainDetachChildRouterDetector.ISSUE);
+    }
+
+    @Override
+    protected boolean allowCompilationErrors() {
+        return true;
+    }
+}
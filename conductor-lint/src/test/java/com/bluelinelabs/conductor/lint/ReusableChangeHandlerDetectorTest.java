@@ -0,0 +1,61 @@
+package com.bluelinelabs.conductor.lint;
+
+import com.android.tools.lint.checks.infrastructure.LintDetectorTest;
+import com.android.tools.lint.detector.api.Detector;
+import com.android.tools.lint.detector.api.Issue;
+
+import org.intellij.lang.annotations.Language;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+public class ReusableChangeHandlerDetectorTest extends LintDetectorTest {
+
+    private static final String NO_WARNINGS = "No warnings.";
+    private static final String REUSABLE_WARNING =
+            "src/test/SampleHandler.java:4: Warning: This ControllerChangeHandler keeps animator state (animator) and should not be reusable [ReusableChangeHandlerState]\n"
+            + "    public boolean isReusable() {\n"
+            + "                   ~~~~~~~~~~\n"
+            + "0 errors, 1 warnings\n";
+
+    public void testReusableWithAnimator() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleHandler extends com.bluelinelabs.conductor.ControllerChangeHandler {\n"
+                + "    private android.animation.Animator animator;\n"
+                + "    public boolean isReusable() {\n"
+                + "        return true;\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(REUSABLE_WARNING);
+    }
+
+    public void testNotReusableWithAnimator() throws Exception {
+        @Language("JAVA") String source = ""
+                + "package test;\n"
+                + "public class SampleHandler extends com.bluelinelabs.conductor.ControllerChangeHandler {\n"
+                + "    private android.animation.Animator animator;\n"
+                + "    public boolean isReusable() {\n"
+                + "        return false;\n"
+                + "    }\n"
+                + "}";
+        assertThat(lintProject(java(source))).isEqualTo(NO_WARNINGS);
+    }
+
+    @Override
+    protected Detector getDetector() {
+        return new ReusableChangeHandlerDetector();
+    }
+
+    @Override
+    protected List<Issue> getIssues() {
+        return Collections.singletonList(ReusableChangeHandlerDetector.ISSUE);
+    }
+
+    @Override
+    protected boolean allowCompilationErrors() {
+        return true;
+    }
+}
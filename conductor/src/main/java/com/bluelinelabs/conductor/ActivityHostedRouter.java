@@ -42,6 +42,11 @@ public class ActivityHostedRouter extends Router {
         lifecycleHandler = null;
     }
 
+    @Override
+    boolean canSpillSavedState() {
+        return true;
+    }
+
     @Override
     public final void invalidateOptionsMenu() {
         if (lifecycleHandler != null && lifecycleHandler.getFragmentManager() != null) {
@@ -98,4 +103,9 @@ public class ActivityHostedRouter extends Router {
     Router getRootRouter() {
         return this;
     }
+
+    @Override @Nullable
+    LifecycleHandler getLifecycleHandler() {
+        return lifecycleHandler;
+    }
 }
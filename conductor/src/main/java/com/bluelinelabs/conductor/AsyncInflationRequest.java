@@ -0,0 +1,193 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds a {@link Controller}'s view on a background thread. The request is delivered back to the Controller on the
+ * main thread once the view is ready, or once the timeout has passed if inflation hasn't started by then. A request
+ * that has not started by the time its view is needed is claimed by the main thread, which then inflates the view
+ * itself. The main thread never waits on a background inflation past the timeout.
+ */
+final class AsyncInflationRequest implements Runnable {
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_INFLATING = 1;
+    private static final int STATE_FINISHED = 2;
+    private static final int STATE_CLAIMED = 3;
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+    private static Executor executor;
+
+    private final Controller controller;
+    private final ViewGroup container;
+    private final LayoutInflater inflater;
+    private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+    private final CountDownLatch finishedLatch = new CountDownLatch(1);
+    private final long deadlineUptimeMillis;
+    private Runnable onInflatedListener;
+    private volatile View view;
+    private volatile RuntimeException error;
+
+    private final Runnable deliverRunnable = new Runnable() {
+        @Override
+        public void run() {
+            MAIN_HANDLER.removeCallbacks(this);
+
+            // Timed out while the view is being built. It's delivered once it's done rather than blocking the main thread.
+            if (state.get() == STATE_INFLATING) {
+                return;
+            }
+            controller.onAsyncInflationFinished(AsyncInflationRequest.this);
+        }
+    };
+
+    private AsyncInflationRequest(@NonNull Controller controller, @NonNull ViewGroup container, long timeoutMillis, @NonNull Runnable onInflatedListener) {
+        this.controller = controller;
+        deadlineUptimeMillis = SystemClock.uptimeMillis() + timeoutMillis;
+        this.container = container;
+        this.onInflatedListener = onInflatedListener;
+
+        // LayoutInflater instances aren't thread safe, so the background thread gets its own.
+        inflater = LayoutInflater.from(container.getContext()).cloneInContext(container.getContext());
+    }
+
+    @NonNull
+    static AsyncInflationRequest start(@NonNull Controller controller, @NonNull ViewGroup container, long timeoutMillis, @NonNull Runnable onInflatedListener) {
+        AsyncInflationRequest request = new AsyncInflationRequest(controller, container, timeoutMillis, onInflatedListener);
+        MAIN_HANDLER.postDelayed(request.deliverRunnable, timeoutMillis);
+        getExecutor().execute(request);
+        return request;
+    }
+
+    /**
+     * Replaces the executor used to run inflations. Passing null restores the default background thread.
+     */
+    static void setExecutor(@Nullable Executor executor) {
+        AsyncInflationRequest.executor = executor;
+    }
+
+    @Override
+    public void run() {
+        if (!state.compareAndSet(STATE_PENDING, STATE_INFLATING)) {
+            return;
+        }
+
+        try {
+            view = controller.createView(inflater, container);
+        } catch (RuntimeException e) {
+            error = e;
+        } finally {
+            // The main thread may have given up on this inflation and built the view itself in the meantime.
+            boolean delivered = state.compareAndSet(STATE_INFLATING, STATE_FINISHED);
+            finishedLatch.countDown();
+            if (delivered) {
+                MAIN_HANDLER.post(deliverRunnable);
+            }
+        }
+    }
+
+    @NonNull
+    ViewGroup getContainer() {
+        return container;
+    }
+
+    @NonNull
+    Runnable getOnInflatedListener() {
+        return onInflatedListener;
+    }
+
+    void setOnInflatedListener(@NonNull Runnable onInflatedListener) {
+        this.onInflatedListener = onInflatedListener;
+    }
+
+    /**
+     * Returns the view built in the background, waiting for it until the timeout if inflation is currently underway.
+     * Returns null if the background thread had not started yet or didn't finish in time, in which case the caller is
+     * expected to inflate the view itself. A view that is still being built is then discarded once it is finished.
+     */
+    @Nullable
+    View await() {
+        MAIN_HANDLER.removeCallbacks(deliverRunnable);
+
+        if (state.compareAndSet(STATE_PENDING, STATE_CLAIMED)) {
+            return null;
+        }
+
+        if (!awaitFinished(deadlineUptimeMillis - SystemClock.uptimeMillis()) && state.compareAndSet(STATE_INFLATING, STATE_CLAIMED)) {
+            return null;
+        }
+
+        // Inflation finished, at the latest right before it could be claimed, so this won't block for long.
+        awaitFinished(Long.MAX_VALUE);
+
+        if (error != null) {
+            throw error;
+        }
+        return view;
+    }
+
+    private boolean awaitFinished(long timeoutMillis) {
+        boolean interrupted = false;
+        try {
+            long deadline = timeoutMillis == Long.MAX_VALUE ? Long.MAX_VALUE : SystemClock.uptimeMillis() + Math.max(timeoutMillis, 0);
+            while (true) {
+                try {
+                    long remaining = deadline == Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(deadline - SystemClock.uptimeMillis(), 0);
+                    return finishedLatch.await(remaining, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Abandons this request. A view that is already being built will be discarded once it is finished.
+     */
+    void cancel() {
+        MAIN_HANDLER.removeCallbacks(deliverRunnable);
+        state.compareAndSet(STATE_PENDING, STATE_CLAIMED);
+    }
+
+    @NonNull
+    private static Executor getExecutor() {
+        if (executor == null) {
+            executor = new HandlerExecutor();
+        }
+        return executor;
+    }
+
+    private static class HandlerExecutor implements Executor {
+
+        private final Handler handler;
+
+        HandlerExecutor() {
+            HandlerThread thread = new HandlerThread("ConductorInflater");
+            thread.start();
+            handler = new Handler(thread.getLooper());
+        }
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    }
+
+}
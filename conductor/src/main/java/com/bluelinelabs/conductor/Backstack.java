@@ -8,8 +8,12 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 class Backstack implements Iterable<RouterTransaction> {
 
@@ -17,6 +21,11 @@ class Backstack implements Iterable<RouterTransaction> {
 
     private final Deque<RouterTransaction> backstack = new ArrayDeque<>();
 
+    // Lookup indexes, kept in sync with the backstack so that lookups don't require walking it. When multiple
+    // transactions share a tag, the tag index always points to the one closest to the top.
+    private final Map<String, RouterTransaction> transactionsByInstanceId = new HashMap<>();
+    private final Map<String, RouterTransaction> transactionsByTag = new HashMap<>();
+
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
     public boolean isEmpty() {
         return backstack.isEmpty();
@@ -41,10 +50,29 @@ class Backstack implements Iterable<RouterTransaction> {
         return backstack.descendingIterator();
     }
 
+    @Nullable
+    public RouterTransaction findByInstanceId(@NonNull String instanceId) {
+        return transactionsByInstanceId.get(instanceId);
+    }
+
+    @Nullable
+    public RouterTransaction findByTag(@NonNull String tag) {
+        return transactionsByTag.get(tag);
+    }
+
+    public boolean contains(@NonNull RouterTransaction transaction) {
+        return transactionsByInstanceId.get(transaction.instanceId()) == transaction;
+    }
+
+    public boolean contains(@NonNull Controller controller) {
+        RouterTransaction transaction = transactionsByInstanceId.get(controller.getInstanceId());
+        return transaction != null && transaction.peekController() == controller;
+    }
+
     @NonNull
     public List<RouterTransaction> popTo(@NonNull RouterTransaction transaction) {
         List<RouterTransaction> popped = new ArrayList<>();
-        if (backstack.contains(transaction)) {
+        if (contains(transaction)) {
             while (backstack.peek() != transaction) {
                 RouterTransaction poppedTransaction = pop();
                 popped.add(poppedTransaction);
@@ -58,7 +86,8 @@ class Backstack implements Iterable<RouterTransaction> {
     @NonNull
     public RouterTransaction pop() {
         RouterTransaction popped = backstack.pop();
-        popped.controller.destroy();
+        removeFromIndexes(popped);
+        popped.destroyController();
         return popped;
     }
 
@@ -68,11 +97,14 @@ class Backstack implements Iterable<RouterTransaction> {
     }
 
     public void remove(@NonNull RouterTransaction transaction) {
-        backstack.removeFirstOccurrence(transaction);
+        if (backstack.removeFirstOccurrence(transaction)) {
+            removeFromIndexes(transaction);
+        }
     }
 
     public void push(@NonNull RouterTransaction transaction) {
         backstack.push(transaction);
+        addToIndexes(transaction);
     }
 
     @NonNull
@@ -85,23 +117,22 @@ class Backstack implements Iterable<RouterTransaction> {
     }
 
     public void setBackstack(@NonNull List<RouterTransaction> backstack) {
-        for (RouterTransaction existingTransaction : this.backstack) {
-            boolean contains = false;
-            for (RouterTransaction newTransaction : backstack) {
-                if (existingTransaction.controller == newTransaction.controller) {
-                    contains = true;
-                    break;
-                }
-            }
+        Set<String> retainedInstanceIds = new HashSet<>(backstack.size());
+        for (RouterTransaction newTransaction : backstack) {
+            retainedInstanceIds.add(newTransaction.instanceId());
+        }
 
-            if (!contains) {
-                existingTransaction.controller.destroy();
+        for (RouterTransaction existingTransaction : this.backstack) {
+            if (!retainedInstanceIds.contains(existingTransaction.instanceId())) {
+                existingTransaction.destroyController();
             }
         }
 
         this.backstack.clear();
+        transactionsByInstanceId.clear();
+        transactionsByTag.clear();
         for (RouterTransaction transaction : backstack) {
-            this.backstack.push(transaction);
+            push(transaction);
         }
     }
 
@@ -114,12 +145,126 @@ class Backstack implements Iterable<RouterTransaction> {
         outState.putParcelableArrayList(KEY_ENTRIES, entryBundles);
     }
 
+    /**
+     * Saves the same state as {@link #saveInstanceState(Bundle)}, but without changing the state of any of the
+     * Controllers.
+     */
+    void snapshotInstanceState(@NonNull Bundle outState) {
+        ArrayList<Bundle> entryBundles = new ArrayList<>(backstack.size());
+        for (RouterTransaction entry : backstack) {
+            entryBundles.add(entry.snapshotInstanceState());
+        }
+
+        outState.putParcelableArrayList(KEY_ENTRIES, entryBundles);
+    }
+
     public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
         if (entryBundles != null) {
             Collections.reverse(entryBundles);
             for (Bundle transactionBundle : entryBundles) {
-                backstack.push(new RouterTransaction(transactionBundle));
+                push(new RouterTransaction(transactionBundle));
+            }
+        }
+    }
+
+    /**
+     * Measures the entries of state saved through {@link #saveInstanceState(Bundle)}, ordered from most recently
+     * pushed to root.
+     */
+    @NonNull
+    static List<SavedStateSize> measureSavedState(@NonNull Bundle savedInstanceState) {
+        List<SavedStateSize> sizes = new ArrayList<>();
+        ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        if (entryBundles != null) {
+            for (Bundle entryBundle : entryBundles) {
+                sizes.add(RouterTransaction.measureSavedState(entryBundle));
+            }
+        }
+        return sizes;
+    }
+
+    static boolean savedStateContains(@NonNull Bundle savedInstanceState, @NonNull String instanceId) {
+        ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        if (entryBundles != null) {
+            for (Bundle entryBundle : entryBundles) {
+                if (RouterTransaction.savedStateContains(entryBundle, instanceId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static void collectInstanceIds(@NonNull Bundle savedInstanceState, @NonNull Set<String> instanceIds) {
+        ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        if (entryBundles != null) {
+            for (Bundle entryBundle : entryBundles) {
+                RouterTransaction.collectInstanceIds(entryBundle, instanceIds);
+            }
+        }
+    }
+
+    /**
+     * Removes all but the top keepCount entries from state saved through {@link #saveInstanceState(Bundle)} and
+     * returns them as a separate Bundle, or null if there is nothing to remove.
+     */
+    @Nullable
+    static Bundle removeBuriedEntries(@NonNull Bundle savedInstanceState, int keepCount) {
+        ArrayList<Bundle> entryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        if (entryBundles == null || entryBundles.size() <= keepCount) {
+            return null;
+        }
+
+        // Entries are saved from the top of the backstack down
+        savedInstanceState.putParcelableArrayList(KEY_ENTRIES, new ArrayList<>(entryBundles.subList(0, keepCount)));
+
+        Bundle buriedState = new Bundle();
+        buriedState.putParcelableArrayList(KEY_ENTRIES, new ArrayList<>(entryBundles.subList(keepCount, entryBundles.size())));
+        return buriedState;
+    }
+
+    /**
+     * Reverses {@link #removeBuriedEntries(Bundle, int)}.
+     */
+    static void addBuriedEntries(@NonNull Bundle savedInstanceState, @NonNull Bundle buriedState) {
+        ArrayList<Bundle> entryBundles = new ArrayList<>();
+        ArrayList<Bundle> visibleEntryBundles = savedInstanceState.getParcelableArrayList(KEY_ENTRIES);
+        if (visibleEntryBundles != null) {
+            entryBundles.addAll(visibleEntryBundles);
+        }
+        ArrayList<Bundle> buriedEntryBundles = buriedState.getParcelableArrayList(KEY_ENTRIES);
+        if (buriedEntryBundles != null) {
+            entryBundles.addAll(buriedEntryBundles);
+        }
+        savedInstanceState.putParcelableArrayList(KEY_ENTRIES, entryBundles);
+    }
+
+    private void addToIndexes(@NonNull RouterTransaction transaction) {
+        transactionsByInstanceId.put(transaction.instanceId(), transaction);
+
+        String tag = transaction.tag();
+        if (tag != null) {
+            transactionsByTag.put(tag, transaction);
+        }
+    }
+
+    private void removeFromIndexes(@NonNull RouterTransaction transaction) {
+        String instanceId = transaction.instanceId();
+        if (transactionsByInstanceId.get(instanceId) == transaction) {
+            transactionsByInstanceId.remove(instanceId);
+        }
+
+        String tag = transaction.tag();
+        if (tag != null && transactionsByTag.get(tag) == transaction) {
+            transactionsByTag.remove(tag);
+
+            // Fall back to the next transaction with the same tag, if one exists further down the stack.
+            for (RouterTransaction remaining : backstack) {
+                if (tag.equals(remaining.tag())) {
+                    transactionsByTag.put(tag, remaining);
+                    break;
+                }
             }
         }
     }
@@ -0,0 +1,192 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Queues several backstack operations so they can be applied to a {@link Router} as one change. Operations are
+ * applied to a working copy of the backstack, and {@link #commit()} only transitions between the visible
+ * {@link Controller}s before and after the whole batch. Controllers that are pushed and popped again within the
+ * same batch never have their views created. Obtained through {@link Router#beginTransaction()}.
+ */
+public class BackstackTransaction {
+
+    private final Router router;
+    private final List<RouterTransaction> backstack;
+    private final List<RouterTransaction> originalBackstack;
+    private final Set<String> originalInstanceIds = new HashSet<>();
+    private final List<RouterTransaction> removedTransactions = new ArrayList<>();
+    private boolean committed;
+
+    BackstackTransaction(@NonNull Router router) {
+        this.router = router;
+        backstack = router.getBackstack();
+        originalBackstack = new ArrayList<>(backstack);
+
+        for (RouterTransaction transaction : backstack) {
+            originalInstanceIds.add(transaction.instanceId());
+        }
+    }
+
+    /**
+     * Queues a push of a new {@link Controller}
+     *
+     * @param transaction The transaction detailing what should be pushed, including the {@link Controller},
+     *                    and its push and pop {@link ControllerChangeHandler}, and its tag.
+     */
+    @NonNull
+    public BackstackTransaction pushController(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+        backstack.add(transaction);
+        return this;
+    }
+
+    /**
+     * Queues a pop of the top {@link Controller}
+     */
+    @NonNull
+    public BackstackTransaction popCurrentController() {
+        ensureNotCommitted();
+        if (backstack.isEmpty()) {
+            throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
+        }
+        removedTransactions.add(backstack.remove(backstack.size() - 1));
+        return this;
+    }
+
+    /**
+     * Queues a pop of the passed {@link Controller}
+     *
+     * @param controller The controller that should be popped
+     */
+    @NonNull
+    public BackstackTransaction popController(@NonNull Controller controller) {
+        ensureNotCommitted();
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            if (backstack.get(i).peekController() == controller) {
+                removedTransactions.add(backstack.remove(i));
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Queues a replacement of the top {@link Controller} with a new {@link Controller}
+     *
+     * @param transaction The transaction detailing what should be pushed, including the {@link Controller},
+     *                    and its push and pop {@link ControllerChangeHandler}, and its tag.
+     */
+    @NonNull
+    public BackstackTransaction replaceTopController(@NonNull RouterTransaction transaction) {
+        ensureNotCommitted();
+        if (!backstack.isEmpty()) {
+            removedTransactions.add(backstack.remove(backstack.size() - 1));
+        }
+        backstack.add(transaction);
+        return this;
+    }
+
+    /**
+     * Queues pops of all {@link Controller}s above the one with the passed tag. Nothing will be popped if no
+     * {@link Controller} has this tag at the time this method is called.
+     *
+     * @param tag The tag being popped to
+     */
+    @NonNull
+    public BackstackTransaction popToTag(@NonNull String tag) {
+        ensureNotCommitted();
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            if (tag.equals(backstack.get(i).tag())) {
+                popAbove(i);
+                break;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Queues pops of all {@link Controller}s until only the root is left
+     */
+    @NonNull
+    public BackstackTransaction popToRoot() {
+        ensureNotCommitted();
+        if (!backstack.isEmpty()) {
+            popAbove(0);
+        }
+        return this;
+    }
+
+    /**
+     * Applies all queued operations to the {@link Router}, using the new top transaction's push
+     * {@link ControllerChangeHandler} if the batch ends on a new {@link Controller}, or the old top transaction's
+     * pop {@link ControllerChangeHandler} if it ends on one that was already in the backstack.
+     */
+    @UiThread
+    public void commit() {
+        commit(null);
+    }
+
+    /**
+     * Applies all queued operations to the {@link Router}. Throws an {@link IllegalStateException} if the Router's
+     * backstack was changed in any other way since this transaction was begun.
+     *
+     * @param changeHandler The {@link ControllerChangeHandler} to use for the change between the old and new
+     *                      top {@link Controller}s, or null to use the default handler for the net change.
+     */
+    @UiThread
+    public void commit(@Nullable ControllerChangeHandler changeHandler) {
+        ensureNotCommitted();
+        if (!originalBackstack.equals(router.getBackstack())) {
+            throw new IllegalStateException("The Router's backstack was changed after this " + getClass().getSimpleName()
+                    + " was begun. Queue all operations on the transaction, or begin a new one after the change.");
+        }
+        committed = true;
+
+        RouterTransaction oldTop = router.backstack.peek();
+        RouterTransaction newTop = backstack.isEmpty() ? null : backstack.get(backstack.size() - 1);
+        boolean isPush = newTop != null && !originalInstanceIds.contains(newTop.instanceId());
+
+        if (changeHandler == null && newTop != oldTop) {
+            if (isPush) {
+                changeHandler = newTop.pushChangeHandler();
+            } else if (oldTop != null) {
+                changeHandler = oldTop.popChangeHandler();
+            }
+        }
+
+        router.setBackstack(backstack, changeHandler, isPush);
+
+        // Controllers that were pushed and popped within this batch never made it to the router, but were still
+        // handed to us to manage, so they need to be destroyed here.
+        Set<String> finalInstanceIds = new HashSet<>();
+        for (RouterTransaction transaction : backstack) {
+            finalInstanceIds.add(transaction.instanceId());
+        }
+        for (RouterTransaction transaction : removedTransactions) {
+            Controller controller = transaction.peekController();
+            if (controller != null && !originalInstanceIds.contains(transaction.instanceId()) && !finalInstanceIds.contains(transaction.instanceId()) && !controller.isDestroyed()) {
+                controller.destroy();
+            }
+        }
+    }
+
+    private void popAbove(int index) {
+        for (int i = backstack.size() - 1; i > index; i--) {
+            removedTransactions.add(backstack.remove(i));
+        }
+    }
+
+    private void ensureNotCommitted() {
+        if (committed) {
+            throw new IllegalStateException(getClass().getSimpleName() + "s can not be modified after being committed.");
+        }
+    }
+
+}
@@ -9,10 +9,21 @@ import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.internal.LifecycleHandler;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Point of initial interaction with Conductor. Used to attach a {@link Router} to your Activity.
  */
 public final class Conductor {
+
+    private static final Map<String, ControllerFactory> CONTROLLER_FACTORIES = new ConcurrentHashMap<>();
+
+    private static SavedStateStore savedStateStore;
+    private static int savedStateSpillThresholdBytes;
+    private static volatile ControllerLeakWatcher leakWatcher;
+    private static SavedStateSize.OnThresholdExceededListener savedStateSizeListener;
+    private static int savedStateSizeWarningBytes;
     
     private Conductor() {}
     
@@ -38,4 +49,90 @@ public final class Conductor {
         return router;
     }
 
+    /**
+     * Registers a factory that will be used instead of reflection whenever Conductor needs to create an instance of
+     * the passed {@link Controller} class, such as when restoring after process death. Registering a factory
+     * for a class replaces any factory that was previously registered for it.
+     *
+     * @param controllerClass The Controller class the factory creates
+     * @param factory The factory
+     */
+    public static void registerControllerFactory(@NonNull Class<? extends Controller> controllerClass, @NonNull ControllerFactory factory) {
+        CONTROLLER_FACTORIES.put(controllerClass.getName(), factory);
+    }
+
+    /**
+     * Removes a factory previously registered through {@link #registerControllerFactory(Class, ControllerFactory)}
+     *
+     * @param controllerClass The Controller class the factory was registered for
+     */
+    public static void unregisterControllerFactory(@NonNull Class<? extends Controller> controllerClass) {
+        CONTROLLER_FACTORIES.remove(controllerClass.getName());
+    }
+
+    /**
+     * Sets a {@link SavedStateStore} that Activity-hosted {@link Router}s will move the state of their buried
+     * backstack entries into whenever their saved state would otherwise be larger than the passed threshold. This
+     * avoids TransactionTooLargeExceptions for deep backstacks with large view states. The store must be set before
+     * any Router is restored, ideally from {@code Application.onCreate()}.
+     *
+     * @param store The store to use, or null to keep all state in the saved instance state Bundle
+     * @param thresholdBytes The parceled size of a Router's backstack above which state is moved to the store
+     */
+    public static void setSavedStateStore(@Nullable SavedStateStore store, int thresholdBytes) {
+        savedStateStore = store;
+        savedStateSpillThresholdBytes = thresholdBytes;
+    }
+
+    @Nullable
+    static SavedStateStore getSavedStateStore() {
+        return savedStateStore;
+    }
+
+    static int getSavedStateSpillThresholdBytes() {
+        return savedStateSpillThresholdBytes;
+    }
+
+    /**
+     * Sets a listener that will be notified whenever an Activity-hosted {@link Router} saves its state and finds a
+     * {@link Controller} whose own saved state, not counting its child Routers, is larger than the passed threshold.
+     * Measuring requires parceling each Controller's state, so this is best left off in release builds.
+     *
+     * @param thresholdBytes The size in bytes above which a Controller's saved state is reported
+     * @param listener The listener to notify, or null to stop measuring
+     */
+    public static void setSavedStateSizeWarning(int thresholdBytes, @Nullable SavedStateSize.OnThresholdExceededListener listener) {
+        savedStateSizeWarningBytes = thresholdBytes;
+        savedStateSizeListener = listener;
+    }
+
+    @Nullable
+    static SavedStateSize.OnThresholdExceededListener getSavedStateSizeListener() {
+        return savedStateSizeListener;
+    }
+
+    static int getSavedStateSizeWarningBytes() {
+        return savedStateSizeWarningBytes;
+    }
+
+    /**
+     * Sets a {@link ControllerLeakWatcher} that will be told about every {@link Controller} that is destroyed and
+     * every view a Controller releases from then on, or null to stop watching. Meant for debug builds only.
+     *
+     * @param watcher The watcher to use, or null to disable leak detection
+     */
+    public static void setLeakWatcher(@Nullable ControllerLeakWatcher watcher) {
+        leakWatcher = watcher;
+    }
+
+    @Nullable
+    static ControllerLeakWatcher getLeakWatcher() {
+        return leakWatcher;
+    }
+
+    @Nullable
+    static ControllerFactory getControllerFactory(@NonNull String className) {
+        return CONTROLLER_FACTORIES.get(className);
+    }
+
 }
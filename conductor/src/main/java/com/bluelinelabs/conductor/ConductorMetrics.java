@@ -0,0 +1,212 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects how long Conductor spends in the steps that make up pushing, popping, saving and restoring
+ * {@link Controller}s. Collection is disabled by default and can be turned on through {@link #setEnabled(boolean)}.
+ * Durations are recorded into fixed size histograms that don't allocate, so this can be left on in production builds.
+ */
+public final class ConductorMetrics {
+
+    /**
+     * The steps Conductor collects timings for.
+     */
+    public enum Metric {
+        /** Creating a Controller's view through {@link Controller#onCreateView}, on whichever thread it happens on. */
+        INFLATE,
+        /** Restoring a Controller's view state, including {@link Controller#onRestoreViewState}. */
+        RESTORE_VIEW_STATE,
+        /** From the start of {@link ControllerChangeHandler#performChange} until the handler reports completion. */
+        CHANGE,
+        /** Saving a Controller's instance state, including the state of its child Routers. */
+        SAVE_INSTANCE_STATE,
+        /** Recreating a Controller from its saved instance state. */
+        NEW_INSTANCE
+    }
+
+    private static final Histogram[] HISTOGRAMS = new Histogram[Metric.values().length];
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new Histogram();
+        }
+    }
+
+    private static volatile boolean enabled;
+
+    private ConductorMetrics() { }
+
+    /**
+     * Turns collection on or off. Turning it off keeps everything recorded so far.
+     */
+    public static void setEnabled(boolean enabled) {
+        ConductorMetrics.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the histogram that durations of the passed step are recorded into.
+     */
+    @NonNull
+    public static Histogram getHistogram(@NonNull Metric metric) {
+        return HISTOGRAMS[metric.ordinal()];
+    }
+
+    /**
+     * Clears all histograms.
+     */
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Returns a timestamp to pass into {@link #endTiming(Metric, long)}, or 0 if collection is disabled.
+     */
+    static long startTiming() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void endTiming(@NonNull Metric metric, long startNanos) {
+        if (startNanos != 0) {
+            HISTOGRAMS[metric.ordinal()].record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * A histogram of durations with a fixed set of buckets. Each power of two nanoseconds is split into four
+     * buckets, so values are reported with a relative error of at most 25%. Recording is thread safe and doesn't
+     * allocate.
+     */
+    public static final class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 2;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong totalCount = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Histogram() { }
+
+        /**
+         * Records a single duration.
+         */
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+
+            counts.incrementAndGet(bucketIndex(nanos));
+            totalCount.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        public long getCount() {
+            return totalCount.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        public long getMeanNanos() {
+            long count = totalCount.get();
+            return count > 0 ? totalNanos.get() / count : 0;
+        }
+
+        /**
+         * Returns an upper bound for the duration below which the passed percentage of recorded durations fall.
+         *
+         * @param percentile The percentile, between 0 and 100
+         */
+        public long getPercentileNanos(double percentile) {
+            long count = totalCount.get();
+            if (count == 0) {
+                return 0;
+            }
+
+            long target = Math.max(1, (long)Math.ceil(count * Math.min(100, Math.max(0, percentile)) / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts.get(i);
+                if (seen >= target) {
+                    return Math.min(getBucketUpperBoundNanos(i), maxNanos.get());
+                }
+            }
+            return maxNanos.get();
+        }
+
+        /**
+         * Returns the number of buckets, for exporting the raw distribution through {@link #getBucketCount(int)}.
+         */
+        public int getBucketCount() {
+            return BUCKET_COUNT;
+        }
+
+        /**
+         * Returns how many recorded durations fell into the bucket with the passed index.
+         */
+        public long getBucketCount(int index) {
+            return counts.get(index);
+        }
+
+        /**
+         * Returns the largest duration, inclusive, that falls into the bucket with the passed index.
+         */
+        public long getBucketUpperBoundNanos(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+
+            int shift = index / SUB_BUCKETS - 1;
+            long lowerBound = (long)(SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+            long upperBound = lowerBound + (1L << shift) - 1;
+            return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+        }
+
+        public void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+            totalCount.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + getCount()
+                    + ", mean=" + TimeUnit.NANOSECONDS.toMicros(getMeanNanos()) + "us"
+                    + ", p50=" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(50)) + "us"
+                    + ", p90=" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(90)) + "us"
+                    + ", p99=" + TimeUnit.NANOSECONDS.toMicros(getPercentileNanos(99)) + "us"
+                    + ", max=" + TimeUnit.NANOSECONDS.toMicros(getMaxNanos()) + "us";
+        }
+
+        static int bucketIndex(long nanos) {
+            if (nanos < SUB_BUCKETS) {
+                return (int)nanos;
+            }
+
+            int shift = 63 - Long.numberOfLeadingZeros(nanos) - SUB_BUCKET_BITS;
+            return (shift + 1) * SUB_BUCKETS + (int)((nanos >>> shift) & (SUB_BUCKETS - 1));
+        }
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.bluelinelabs.conductor;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Makes the work Conductor does while navigating visible to tracing tools. Sections can be emitted through
+ * {@link Trace}, so they show up in systrace and Perfetto next to the rest of the app, and recorded in process
+ * through a {@link NavigationTraceRecorder}. Both are disabled by default.
+ */
+public final class ConductorTrace {
+
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private static volatile boolean systraceEnabled;
+    private static volatile NavigationTraceRecorder recorder;
+
+    private ConductorTrace() { }
+
+    /**
+     * Sets whether or not Conductor should emit {@link Trace} sections. Only has an effect on API 18 and up, and
+     * should only be changed while no navigation is in progress so that sections aren't left open.
+     */
+    public static void setSystraceEnabled(boolean enabled) {
+        systraceEnabled = enabled;
+    }
+
+    public static boolean isSystraceEnabled() {
+        return systraceEnabled;
+    }
+
+    /**
+     * Sets the recorder navigation events should be recorded into, or null to stop recording.
+     */
+    public static void setRecorder(@Nullable NavigationTraceRecorder recorder) {
+        ConductorTrace.recorder = recorder;
+    }
+
+    @Nullable
+    public static NavigationTraceRecorder getRecorder() {
+        return recorder;
+    }
+
+    /**
+     * Starts a section, which must be ended by passing the returned value to
+     * {@link #endSection(String, Controller, long)} on the same thread.
+     */
+    static long beginSection(@NonNull String section, @Nullable Controller controller) {
+        if (systraceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            beginSystraceSection(sectionName(section, controller));
+        }
+        return recorder != null ? System.nanoTime() : 0;
+    }
+
+    static void endSection(@NonNull String section, @Nullable Controller controller, long startNanos) {
+        if (systraceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            endSystraceSection();
+        }
+
+        NavigationTraceRecorder recorder = ConductorTrace.recorder;
+        if (recorder != null && startNanos != 0) {
+            recorder.recordSection(section, controller, startNanos, System.nanoTime());
+        }
+    }
+
+    @NonNull
+    static String sectionName(@NonNull String section, @Nullable Controller controller) {
+        String name = controller != null ? "Conductor." + section + " " + controller.getClass().getSimpleName() : "Conductor." + section;
+        return name.length() > MAX_SECTION_NAME_LENGTH ? name.substring(0, MAX_SECTION_NAME_LENGTH) : name;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void beginSystraceSection(@NonNull String name) {
+        Trace.beginSection(name);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void endSystraceSection() {
+        Trace.endSection();
+    }
+
+}
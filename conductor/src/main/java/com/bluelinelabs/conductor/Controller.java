@@ -8,6 +8,7 @@ import android.content.res.Resources;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Parcelable;
+import android.os.SystemClock;
 import android.support.annotation.IdRes;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
@@ -20,8 +21,10 @@ import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.ConductorMetrics.Metric;
 import com.bluelinelabs.conductor.Router.OnControllerPushedListener;
 import com.bluelinelabs.conductor.internal.ClassUtils;
+import com.bluelinelabs.conductor.internal.LifecycleHandler;
 import com.bluelinelabs.conductor.internal.RouterRequiringFunc;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler;
 import com.bluelinelabs.conductor.internal.ViewAttachHandler.ViewAttachListener;
@@ -30,8 +33,8 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -57,6 +60,10 @@ public abstract class Controller {
     private static final String KEY_VIEW_STATE_HIERARCHY = "Controller.viewState.hierarchy";
     private static final String KEY_VIEW_STATE_BUNDLE = "Controller.viewState.bundle";
     private static final String KEY_RETAIN_VIEW_MODE = "Controller.retainViewMode";
+    private static final String KEY_INFLATES_VIEW_ASYNC = "Controller.inflatesViewAsync";
+    private static final String KEY_CACHES_SAVED_STATE = "Controller.cachesSavedState";
+
+    private static final LifecycleListener[] NO_LIFECYCLE_LISTENERS = new LifecycleListener[0];
 
     private final Bundle args;
 
@@ -82,43 +89,144 @@ public abstract class Controller {
     private ControllerChangeHandler overriddenPopHandler;
     private RetainViewMode retainViewMode = RetainViewMode.RELEASE_DETACH;
     private ViewAttachHandler viewAttachHandler;
+    private boolean inflatesViewAsync;
+    private AsyncInflationRequest pendingInflation;
+    private Router retainedViewRouter;
+    private boolean cachesSavedState;
+    private Bundle cachedSavedState;
+    private long detachedUptimeMillis;
     private final List<ControllerHostedRouter> childRouters = new ArrayList<>();
-    private final List<LifecycleListener> lifecycleListeners = new ArrayList<>();
+    private LifecycleListener[] lifecycleListeners = NO_LIFECYCLE_LISTENERS;
+    private LifecycleListener[] dispatchListeners = NO_LIFECYCLE_LISTENERS;
+    private LifecycleListener[] dispatchListenersOwnSource = NO_LIFECYCLE_LISTENERS;
+    private LifecycleListener[] dispatchListenersRouterSource = NO_LIFECYCLE_LISTENERS;
     private final ArrayList<String> requestedPermissions = new ArrayList<>();
     private final ArrayList<RouterRequiringFunc> onRouterSetListeners = new ArrayList<>();
-    private final List<Controller> childBackstack = new LinkedList<>();
+    // Instance ids of child Controllers in the order they were pushed, across all child Routers
+    private final List<String> childBackstack = new ArrayList<>();
     private WeakReference<View> destroyedView;
 
     private final OnControllerPushedListener onControllerPushedListener = new OnControllerPushedListener() {
         @Override
-        public void onControllerPushed(Controller controller) {
-            onChildControllerPushed(controller);
+        public void onControllerPushed(RouterTransaction transaction) {
+            onChildControllerPushed(transaction);
         }
     };
 
     @NonNull
     static Controller newInstance(@NonNull Bundle bundle) {
+        final long startNanos = ConductorMetrics.startTiming();
         final String className = bundle.getString(KEY_CLASS_NAME);
-        //noinspection ConstantConditions
-        Constructor[] constructors = ClassUtils.classForName(className, false).getConstructors();
-        Constructor bundleConstructor = getBundleConstructor(constructors);
+        final Bundle args = bundle.getBundle(KEY_ARGS);
 
         Controller controller;
-        try {
-            if (bundleConstructor != null) {
-                controller = (Controller)bundleConstructor.newInstance(bundle.getBundle(KEY_ARGS));
-            } else {
-                //noinspection ConstantConditions
-                controller = (Controller)getDefaultConstructor(constructors).newInstance();
+        //noinspection ConstantConditions
+        ControllerFactory factory = Conductor.getControllerFactory(className);
+        if (factory != null) {
+            //noinspection ConstantConditions
+            controller = factory.newInstance(args);
+        } else {
+            //noinspection ConstantConditions
+            Class<? extends Controller> cls = ClassUtils.classForName(className, false);
+            //noinspection ConstantConditions
+            Constructor<? extends Controller> bundleConstructor = ClassUtils.getConstructor(cls, Bundle.class);
+
+            try {
+                if (bundleConstructor != null) {
+                    controller = bundleConstructor.newInstance(args);
+                } else {
+                    //noinspection ConstantConditions
+                    controller = ClassUtils.getConstructor(cls).newInstance();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage(), e);
         }
 
         controller.restoreInstanceState(bundle);
+
+        ConductorMetrics.endTiming(Metric.NEW_INSTANCE, startNanos);
         return controller;
     }
 
+    /**
+     * Returns the state that a Controller of the passed class would be restored from if it had just been created
+     * with the passed arguments. Used for Controllers that are only created once they're needed.
+     */
+    @NonNull
+    static Bundle createInitialState(@NonNull Class<? extends Controller> cls, @Nullable Bundle args) {
+        Bundle state = new Bundle();
+        state.putString(KEY_CLASS_NAME, cls.getName());
+        state.putBundle(KEY_ARGS, args != null ? args : new Bundle());
+        state.putString(KEY_INSTANCE_ID, UUID.randomUUID().toString());
+        state.putStringArrayList(KEY_REQUESTED_PERMISSIONS, new ArrayList<String>());
+        state.putParcelableArrayList(KEY_CHILD_ROUTERS, new ArrayList<Bundle>());
+        state.putStringArrayList(KEY_CHILD_BACKSTACK, new ArrayList<String>());
+        return state;
+    }
+
+    @NonNull
+    static String getInstanceId(@NonNull Bundle savedState) {
+        //noinspection ConstantConditions
+        return savedState.getString(KEY_INSTANCE_ID);
+    }
+
+    static boolean savedStateContains(@NonNull Bundle savedState, @NonNull String instanceId) {
+        if (instanceId.equals(savedState.getString(KEY_INSTANCE_ID))) {
+            return true;
+        }
+
+        List<Bundle> childBundles = savedState.getParcelableArrayList(KEY_CHILD_ROUTERS);
+        if (childBundles != null) {
+            for (Bundle childBundle : childBundles) {
+                if (Router.savedStateContains(childBundle, instanceId)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    static void collectInstanceIds(@NonNull Bundle savedState, @NonNull Set<String> instanceIds) {
+        instanceIds.add(getInstanceId(savedState));
+
+        List<Bundle> childBundles = savedState.getParcelableArrayList(KEY_CHILD_ROUTERS);
+        if (childBundles != null) {
+            for (Bundle childBundle : childBundles) {
+                Router.collectInstanceIds(childBundle, instanceIds);
+            }
+        }
+    }
+
+    @NonNull
+    static SavedStateSize measureSavedState(@NonNull Bundle savedState, @Nullable String tag) {
+        List<SavedStateSize> children = new ArrayList<>();
+        int childRoutersBytes = 0;
+
+        List<Bundle> childBundles = savedState.getParcelableArrayList(KEY_CHILD_ROUTERS);
+        if (childBundles != null) {
+            for (Bundle childBundle : childBundles) {
+                childRoutersBytes += SavedStateSize.parceledSize(childBundle);
+                children.addAll(Router.measureSavedState(childBundle));
+            }
+        }
+
+        return new SavedStateSize(savedState.getString(KEY_CLASS_NAME), savedState.getString(KEY_INSTANCE_ID), tag,
+                SavedStateSize.parceledSize(savedState), SavedStateSize.parceledSize(savedState.getBundle(KEY_ARGS)),
+                SavedStateSize.parceledSize(savedState.getBundle(KEY_VIEW_STATE)), SavedStateSize.parceledSize(savedState.getBundle(KEY_SAVED_STATE)),
+                childRoutersBytes, children);
+    }
+
+    @Nullable
+    static ControllerChangeHandler getOverriddenPushHandler(@NonNull Bundle savedState) {
+        return ControllerChangeHandler.fromBundle(savedState.getBundle(KEY_OVERRIDDEN_PUSH_HANDLER));
+    }
+
+    @Nullable
+    static ControllerChangeHandler getOverriddenPopHandler(@NonNull Bundle savedState) {
+        return ControllerChangeHandler.fromBundle(savedState.getBundle(KEY_OVERRIDDEN_POP_HANDLER));
+    }
+
     /**
      * Convenience constructor for use when no arguments are needed.
      */
@@ -218,6 +326,7 @@ public abstract class Controller {
                 monitorChildRouter(childRouter);
                 childRouter.setHost(this, container);
                 childRouters.add(childRouter);
+                invalidateSavedState();
             }
         } else if (!childRouter.hasHost()) {
             childRouter.setHost(this, container);
@@ -230,6 +339,7 @@ public abstract class Controller {
 
     public final void removeChildRouter(@NonNull Router childRouter) {
         if ((childRouter instanceof ControllerHostedRouter) && childRouters.remove(childRouter)) {
+            invalidateSavedState();
             childRouter.destroy(true);
         }
     }
@@ -352,6 +462,7 @@ public abstract class Controller {
         }
 
         targetInstanceId = target != null ? target.getInstanceId() : null;
+        invalidateSavedState();
     }
 
     /**
@@ -521,6 +632,7 @@ public abstract class Controller {
     @TargetApi(Build.VERSION_CODES.M)
     public final void requestPermissions(@NonNull final String[] permissions, final int requestCode) {
         requestedPermissions.addAll(Arrays.asList(permissions));
+        invalidateSavedState();
 
         executeWithRouter(new RouterRequiringFunc() {
             @Override public void execute() { router.requestPermissions(instanceId, permissions, requestCode); }
@@ -553,8 +665,8 @@ public abstract class Controller {
      */
     public boolean handleBack() {
         for (int i = childBackstack.size() - 1; i >= 0; i--) {
-            Controller childController = childBackstack.get(i);
-            if (childController.isAttached() && childController.getRouter().handleBack()) {
+            Controller childController = findCreatedChild(childBackstack.get(i));
+            if (childController != null && childController.isAttached() && childController.getRouter().handleBack()) {
                 return true;
             }
         }
@@ -568,8 +680,13 @@ public abstract class Controller {
      * @param lifecycleListener The listener
      */
     public void addLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-        if (!lifecycleListeners.contains(lifecycleListener)) {
-            lifecycleListeners.add(lifecycleListener);
+        if (indexOfLifecycleListener(lifecycleListener) < 0) {
+            // Listeners are copied on write so that dispatching never allocates and isn't affected by listeners
+            // being added or removed while it's underway.
+            LifecycleListener[] listeners = new LifecycleListener[lifecycleListeners.length + 1];
+            System.arraycopy(lifecycleListeners, 0, listeners, 0, lifecycleListeners.length);
+            listeners[lifecycleListeners.length] = lifecycleListener;
+            lifecycleListeners = listeners;
         }
     }
 
@@ -579,7 +696,49 @@ public abstract class Controller {
      * @param lifecycleListener The listener to be removed
      */
     public void removeLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
-        lifecycleListeners.remove(lifecycleListener);
+        int index = indexOfLifecycleListener(lifecycleListener);
+        if (index >= 0) {
+            if (lifecycleListeners.length == 1) {
+                lifecycleListeners = NO_LIFECYCLE_LISTENERS;
+            } else {
+                LifecycleListener[] listeners = new LifecycleListener[lifecycleListeners.length - 1];
+                System.arraycopy(lifecycleListeners, 0, listeners, 0, index);
+                System.arraycopy(lifecycleListeners, index + 1, listeners, index, listeners.length - index);
+                lifecycleListeners = listeners;
+            }
+        }
+    }
+
+    /**
+     * Returns this Controller's own listeners followed by those registered on its Router hierarchy. The combined array
+     * is cached and only rebuilt when one of its sources has been replaced.
+     */
+    @NonNull
+    private LifecycleListener[] getDispatchListeners() {
+        LifecycleListener[] routerListeners = router != null ? router.getHierarchyLifecycleListeners() : NO_LIFECYCLE_LISTENERS;
+        if (routerListeners.length == 0) {
+            return lifecycleListeners;
+        } else if (lifecycleListeners.length == 0) {
+            return routerListeners;
+        }
+
+        if (dispatchListenersOwnSource != lifecycleListeners || dispatchListenersRouterSource != routerListeners) {
+            dispatchListeners = new LifecycleListener[lifecycleListeners.length + routerListeners.length];
+            System.arraycopy(lifecycleListeners, 0, dispatchListeners, 0, lifecycleListeners.length);
+            System.arraycopy(routerListeners, 0, dispatchListeners, lifecycleListeners.length, routerListeners.length);
+            dispatchListenersOwnSource = lifecycleListeners;
+            dispatchListenersRouterSource = routerListeners;
+        }
+        return dispatchListeners;
+    }
+
+    private int indexOfLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
+        for (int i = 0; i < lifecycleListeners.length; i++) {
+            if (lifecycleListeners[i].equals(lifecycleListener)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     /**
@@ -596,11 +755,61 @@ public abstract class Controller {
      */
     public void setRetainViewMode(@NonNull RetainViewMode retainViewMode) {
         this.retainViewMode = retainViewMode != null ? retainViewMode : RetainViewMode.RELEASE_DETACH;
+        invalidateSavedState();
         if (this.retainViewMode == RetainViewMode.RELEASE_DETACH && !attached) {
             removeViewReference();
         }
     }
 
+    /**
+     * Returns whether or not this Controller's view will be inflated on a background thread when it is pushed.
+     * Defaults to false.
+     */
+    public boolean getInflatesViewAsync() {
+        return inflatesViewAsync;
+    }
+
+    /**
+     * Sets whether or not this Controller's view should be inflated on a background thread when it is pushed. The
+     * previous Controller stays interactive while inflation is underway, and the push {@link ControllerChangeHandler}
+     * only starts once the view is ready or the Router's async inflation timeout has passed. When enabled,
+     * {@link #onCreateView(LayoutInflater, ViewGroup)} must not touch anything other than the views it creates.
+     */
+    public void setInflatesViewAsync(boolean inflatesViewAsync) {
+        this.inflatesViewAsync = inflatesViewAsync;
+        invalidateSavedState();
+    }
+
+    /**
+     * Returns whether or not this Controller reuses its last saved instance state while nothing it knows about has
+     * changed. Defaults to false.
+     */
+    public boolean getCachesSavedState() {
+        return cachesSavedState;
+    }
+
+    /**
+     * Sets whether or not this Controller should reuse the Bundle from its last {@link #saveInstanceState()} call as
+     * long as it has no view and hasn't been attached, detached or had its child Routers changed since. This makes
+     * saving deep backstacks much cheaper, but {@link #onSaveInstanceState(Bundle)} will then not be called for clean
+     * Controllers, so {@link #invalidateSavedState()} must be called whenever any state saved there changes.
+     */
+    public void setCachesSavedState(boolean cachesSavedState) {
+        this.cachesSavedState = cachesSavedState;
+        invalidateSavedState();
+    }
+
+    /**
+     * Marks this Controller's saved instance state as out of date, so that it will be rebuilt the next time it is
+     * saved. Only needed if {@link #setCachesSavedState(boolean)} has been enabled.
+     */
+    public final void invalidateSavedState() {
+        cachedSavedState = null;
+        if (parentController != null) {
+            parentController.invalidateSavedState();
+        }
+    }
+
     /**
      * Returns the {@link ControllerChangeHandler} that should be used for pushing this Controller, or null
      * if the handler from the {@link RouterTransaction} should be used instead.
@@ -616,6 +825,7 @@ public abstract class Controller {
      */
     public void overridePushHandler(@Nullable ControllerChangeHandler overriddenPushHandler) {
         this.overriddenPushHandler = overriddenPushHandler;
+        invalidateSavedState();
     }
 
     /**
@@ -633,6 +843,7 @@ public abstract class Controller {
      */
     public void overridePopHandler(@Nullable ControllerChangeHandler overriddenPopHandler) {
         this.overriddenPopHandler = overriddenPopHandler;
+        invalidateSavedState();
     }
 
     /**
@@ -697,10 +908,14 @@ public abstract class Controller {
 
     final void setNeedsAttach() {
         needsAttach = true;
+        invalidateSavedState();
     }
 
     final void prepareForHostDetach() {
-        needsAttach = needsAttach || attached;
+        if (!needsAttach && attached) {
+            needsAttach = true;
+            invalidateSavedState();
+        }
 
         for (ControllerHostedRouter router : childRouters) {
             router.prepareForHostDetach();
@@ -717,6 +932,7 @@ public abstract class Controller {
 
     final void requestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
         requestedPermissions.removeAll(Arrays.asList(permissions));
+        invalidateSavedState();
         onRequestPermissionsResult(requestCode, permissions, grantResults);
     }
 
@@ -733,6 +949,11 @@ public abstract class Controller {
         } else {
             performOnRestoreInstanceState();
         }
+
+        LifecycleHandler lifecycleHandler = router.getLifecycleHandler();
+        if (lifecycleHandler != null && !destroyed) {
+            lifecycleHandler.registerController(this);
+        }
     }
 
     final void executeWithRouter(@NonNull RouterRequiringFunc listener) {
@@ -775,6 +996,15 @@ public abstract class Controller {
     }
 
     private void attach(@NonNull View view) {
+        long traceStart = ConductorTrace.beginSection("attach", this);
+        try {
+            performAttach(view);
+        } finally {
+            ConductorTrace.endSection("attach", this, traceStart);
+        }
+    }
+
+    private void performAttach(@NonNull View view) {
         attachedToUnownedParent = router == null || view.getParent() != router.container;
         if (attachedToUnownedParent) {
             return;
@@ -782,49 +1012,64 @@ public abstract class Controller {
 
         hasSavedViewState = false;
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = getDispatchListeners();
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.preAttach(this, view);
         }
 
         attached = true;
         needsAttach = false;
+        releaseRetainedViewSlot();
+        invalidateSavedState();
 
         onAttach(view);
+        recordLifecycleEvent("attach");
 
         if (hasOptionsMenu && !optionsMenuHidden) {
             router.invalidateOptionsMenu();
         }
 
-        listeners = new ArrayList<>(lifecycleListeners);
+        listeners = getDispatchListeners();
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.postAttach(this, view);
         }
     }
 
     void detach(@NonNull View view, boolean forceViewRefRemoval) {
+        long traceStart = ConductorTrace.beginSection("detach", this);
+        try {
+            performDetach(view, forceViewRefRemoval);
+        } finally {
+            ConductorTrace.endSection("detach", this, traceStart);
+        }
+    }
+
+    private void performDetach(@NonNull View view, boolean forceViewRefRemoval) {
         if (!attachedToUnownedParent) {
-            for (ControllerHostedRouter router : childRouters) {
-                router.prepareForHostDetach();
+            for (int i = 0; i < childRouters.size(); i++) {
+                childRouters.get(i).prepareForHostDetach();
             }
         }
 
         final boolean removeViewRef = forceViewRefRemoval || retainViewMode == RetainViewMode.RELEASE_DETACH || isBeingDestroyed;
 
         if (attached) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.preDetach(this, view);
             }
 
             attached = false;
+            detachedUptimeMillis = SystemClock.uptimeMillis();
+            invalidateSavedState();
             onDetach(view);
+            recordLifecycleEvent("detach");
 
             if (hasOptionsMenu && !optionsMenuHidden) {
                 router.invalidateOptionsMenu();
             }
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postDetach(this, view);
             }
@@ -832,21 +1077,48 @@ public abstract class Controller {
 
         if (removeViewRef) {
             removeViewReference();
+        } else if (retainViewMode == RetainViewMode.RETAIN_BOUNDED && router != null && retainedViewRouter == null) {
+            retainedViewRouter = router.getRootRouter();
+            retainedViewRouter.addRetainedView(this);
+        }
+    }
+
+    /**
+     * Releases this Controller's view if it has one that isn't currently on screen, such as a prefetched view.
+     */
+    final void releaseDetachedView() {
+        if (!attached && view != null && view.getParent() == null) {
+            removeViewReference();
+        }
+    }
+
+    final void evictRetainedView() {
+        retainedViewRouter = null;
+        releaseDetachedView();
+    }
+
+    private void releaseRetainedViewSlot() {
+        if (retainedViewRouter != null) {
+            retainedViewRouter.removeRetainedView(this);
+            retainedViewRouter = null;
         }
     }
 
     private void removeViewReference() {
+        releaseRetainedViewSlot();
+
         if (view != null) {
             if (!isBeingDestroyed && !hasSavedViewState) {
                 saveViewState(view);
             }
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.preDestroyView(this, view);
             }
 
             onDestroyView(view);
+            recordLifecycleEvent("destroyView");
 
             viewAttachHandler.unregisterAttachListener(view);
             viewAttachHandler = null;
@@ -855,9 +1127,14 @@ public abstract class Controller {
             if (isBeingDestroyed) {
                 destroyedView = new WeakReference<>(view);
             }
+
+            ControllerLeakWatcher leakWatcher = Conductor.getLeakWatcher();
+            if (leakWatcher != null) {
+                leakWatcher.watchView(this, view);
+            }
             view = null;
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postDestroyView(this);
             }
@@ -873,23 +1150,40 @@ public abstract class Controller {
     }
 
     final View inflate(@NonNull ViewGroup parent) {
+        long traceStart = ConductorTrace.beginSection("inflate", this);
+        try {
+            return performInflate(parent);
+        } finally {
+            ConductorTrace.endSection("inflate", this, traceStart);
+        }
+    }
+
+    private View performInflate(@NonNull ViewGroup parent) {
         if (view != null && view.getParent() != null && view.getParent() != parent) {
             detach(view, true);
             removeViewReference();
         }
 
         if (view == null) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
-            for (LifecycleListener lifecycleListener : listeners) {
-                lifecycleListener.preCreateView(this);
+            AsyncInflationRequest request = pendingInflation;
+            pendingInflation = null;
+
+            View createdView = null;
+            if (request == null) {
+                dispatchPreCreateView();
+            } else if (request.getContainer() == parent) {
+                createdView = request.await();
+            } else {
+                request.cancel();
             }
 
-            view = onCreateView(LayoutInflater.from(parent.getContext()), parent);
-            if (view == parent) {
-                throw new IllegalStateException("Controller's onCreateView method returned the parent ViewGroup. Perhaps you forgot to pass false for LayoutInflater.inflate's attachToRoot parameter?");
+            if (createdView == null) {
+                createdView = createView(LayoutInflater.from(parent.getContext()), parent);
             }
+            view = createdView;
+            recordLifecycleEvent("createView");
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postCreateView(this, view);
             }
@@ -917,13 +1211,67 @@ public abstract class Controller {
                 }
             });
             viewAttachHandler.listenForAttach(view);
-        } else if (retainViewMode == RetainViewMode.RETAIN_DETACH) {
+        } else if (retainViewMode != RetainViewMode.RELEASE_DETACH) {
             restoreChildControllerHosts();
         }
 
         return view;
     }
 
+    /**
+     * Starts building this Controller's view on a background thread. The listener is called on the main thread once
+     * the view is ready to be picked up by {@link #inflate(ViewGroup)}, or once the timeout has passed, unless the view
+     * has already been picked up or the Controller has been destroyed by then.
+     */
+    final void inflateAsync(@NonNull ViewGroup parent, long timeoutMillis, @NonNull Runnable onInflatedListener) {
+        if (pendingInflation != null) {
+            if (pendingInflation.getContainer() == parent) {
+                pendingInflation.setOnInflatedListener(onInflatedListener);
+                return;
+            }
+            pendingInflation.cancel();
+        } else {
+            dispatchPreCreateView();
+        }
+
+        pendingInflation = AsyncInflationRequest.start(this, parent, timeoutMillis, onInflatedListener);
+    }
+
+    final boolean isInflatingAsync() {
+        return pendingInflation != null;
+    }
+
+    final void onAsyncInflationFinished(@NonNull AsyncInflationRequest request) {
+        if (request == pendingInflation && !isBeingDestroyed) {
+            request.getOnInflatedListener().run();
+        }
+    }
+
+    @NonNull
+    final View createView(@NonNull LayoutInflater inflater, @NonNull ViewGroup parent) {
+        long startNanos = ConductorMetrics.startTiming();
+        View view = onCreateView(inflater, parent);
+        if (view == parent) {
+            throw new IllegalStateException("Controller's onCreateView method returned the parent ViewGroup. Perhaps you forgot to pass false for LayoutInflater.inflate's attachToRoot parameter?");
+        }
+        ConductorMetrics.endTiming(Metric.INFLATE, startNanos);
+        return view;
+    }
+
+    private void dispatchPreCreateView() {
+        LifecycleListener[] listeners = getDispatchListeners();
+        for (LifecycleListener lifecycleListener : listeners) {
+            lifecycleListener.preCreateView(this);
+        }
+    }
+
+    private void cancelPendingInflation() {
+        if (pendingInflation != null) {
+            pendingInflation.cancel();
+            pendingInflation = null;
+        }
+    }
+
     private void restoreChildControllerHosts() {
         for (ControllerHostedRouter childRouter : childRouters) {
             if (!childRouter.hasHost()) {
@@ -940,7 +1288,7 @@ public abstract class Controller {
 
     private void performDestroy() {
         if (!destroyed) {
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.preDestroy(this);
             }
@@ -948,13 +1296,34 @@ public abstract class Controller {
             destroyed = true;
 
             onDestroy();
+            recordLifecycleEvent("destroy");
+
+            if (router != null) {
+                LifecycleHandler lifecycleHandler = router.getLifecycleHandler();
+                if (lifecycleHandler != null) {
+                    lifecycleHandler.unregisterController(this);
+                }
+            }
+
+            if (router != null) {
+                router.onControllerDestroyed(this);
+            }
+            if (parentController != null) {
+                parentController.childBackstack.remove(instanceId);
+                parentController.invalidateSavedState();
+            }
 
             parentController = null;
 
-            listeners = new ArrayList<>(lifecycleListeners);
+            listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.postDestroy(this);
             }
+
+            ControllerLeakWatcher leakWatcher = Conductor.getLeakWatcher();
+            if (leakWatcher != null) {
+                leakWatcher.watchController(this);
+            }
         }
     }
 
@@ -962,8 +1331,16 @@ public abstract class Controller {
         destroy(false);
     }
 
+    private void recordLifecycleEvent(@NonNull String event) {
+        ControllerLeakWatcher leakWatcher = Conductor.getLeakWatcher();
+        if (leakWatcher != null) {
+            leakWatcher.recordLifecycleEvent(this, event);
+        }
+    }
+
     private void destroy(boolean removeViews) {
         isBeingDestroyed = true;
+        cancelPendingInflation();
 
         if (router != null) {
             router.unregisterForActivityResults(instanceId);
@@ -982,8 +1359,14 @@ public abstract class Controller {
 
     private void saveViewState(@NonNull View view) {
         hasSavedViewState = true;
+        invalidateSavedState();
+
+        viewState = createViewState(view);
+    }
 
-        viewState = new Bundle(getClass().getClassLoader());
+    @NonNull
+    private Bundle createViewState(@NonNull View view) {
+        Bundle viewState = new Bundle(getClass().getClassLoader());
 
         SparseArray<Parcelable> hierarchyState = new SparseArray<>();
         view.saveHierarchyState(hierarchyState);
@@ -993,31 +1376,78 @@ public abstract class Controller {
         onSaveViewState(view, stateBundle);
         viewState.putBundle(KEY_VIEW_STATE_BUNDLE, stateBundle);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = getDispatchListeners();
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.onSaveViewState(this, viewState);
         }
+        return viewState;
     }
 
     private void restoreViewState(@NonNull View view) {
         if (viewState != null) {
+            long startNanos = ConductorMetrics.startTiming();
             view.restoreHierarchyState(viewState.getSparseParcelableArray(KEY_VIEW_STATE_HIERARCHY));
             onRestoreViewState(view, viewState.getBundle(KEY_VIEW_STATE_BUNDLE));
 
             restoreChildControllerHosts();
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.onRestoreViewState(this, viewState);
             }
+
+            ConductorMetrics.endTiming(Metric.RESTORE_VIEW_STATE, startNanos);
         }
     }
 
     final Bundle saveInstanceState() {
-        if (!hasSavedViewState && view != null) {
-            saveViewState(view);
+        long traceStart = ConductorTrace.beginSection("saveInstanceState", this);
+        try {
+            return performSaveInstanceState();
+        } finally {
+            ConductorTrace.endSection("saveInstanceState", this, traceStart);
         }
+    }
 
+    private Bundle performSaveInstanceState() {
+        long startNanos = ConductorMetrics.startTiming();
+        try {
+            if (!hasSavedViewState && view != null) {
+                saveViewState(view);
+            }
+
+            // A live view can change without going through any of the hooks that invalidate the cache.
+            if (cachedSavedState != null && view == null) {
+                return cachedSavedState;
+            }
+
+            Bundle outState = createInstanceState(viewState, false);
+
+            if (canCacheSavedState()) {
+                cachedSavedState = outState;
+            }
+            return outState;
+        } finally {
+            ConductorMetrics.endTiming(Metric.SAVE_INSTANCE_STATE, startNanos);
+        }
+    }
+
+    /**
+     * Returns the state {@link #saveInstanceState()} would return right now without changing anything about this
+     * Controller, such as whether its view state has been saved or what it has cached. Used for measuring saved state
+     * outside of actual saves.
+     */
+    @NonNull
+    final Bundle snapshotInstanceState() {
+        if (cachedSavedState != null && view == null) {
+            return cachedSavedState;
+        }
+
+        return createInstanceState(!hasSavedViewState && view != null ? createViewState(view) : viewState, true);
+    }
+
+    @NonNull
+    private Bundle createInstanceState(@Nullable Bundle viewState, boolean snapshot) {
         Bundle outState = new Bundle();
         outState.putString(KEY_CLASS_NAME, getClass().getName());
         outState.putBundle(KEY_VIEW_STATE, viewState);
@@ -1027,6 +1457,8 @@ public abstract class Controller {
         outState.putStringArrayList(KEY_REQUESTED_PERMISSIONS, requestedPermissions);
         outState.putBoolean(KEY_NEEDS_ATTACH, needsAttach || attached);
         outState.putInt(KEY_RETAIN_VIEW_MODE, retainViewMode.ordinal());
+        outState.putBoolean(KEY_INFLATES_VIEW_ASYNC, inflatesViewAsync);
+        outState.putBoolean(KEY_CACHES_SAVED_STATE, cachesSavedState);
 
         if (overriddenPushHandler != null) {
             outState.putBundle(KEY_OVERRIDDEN_PUSH_HANDLER, overriddenPushHandler.toBundle());
@@ -1038,31 +1470,46 @@ public abstract class Controller {
         ArrayList<Bundle> childBundles = new ArrayList<>();
         for (ControllerHostedRouter childRouter : childRouters) {
             Bundle routerBundle = new Bundle();
-            childRouter.saveInstanceState(routerBundle);
+            if (snapshot) {
+                childRouter.snapshotInstanceState(routerBundle);
+            } else {
+                childRouter.saveInstanceState(routerBundle);
+            }
             childBundles.add(routerBundle);
         }
         outState.putParcelableArrayList(KEY_CHILD_ROUTERS, childBundles);
 
+        // Children that were popped before ever being created never removed themselves
         ArrayList<String> childBackstack = new ArrayList<>();
-        for (Controller controller : this.childBackstack) {
-            childBackstack.add(controller.instanceId);
+        for (String childInstanceId : this.childBackstack) {
+            if (findChildTransaction(childInstanceId) != null) {
+                childBackstack.add(childInstanceId);
+            }
         }
         outState.putStringArrayList(KEY_CHILD_BACKSTACK, childBackstack);
 
         Bundle savedState = new Bundle();
         onSaveInstanceState(savedState);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = getDispatchListeners();
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.onSaveInstanceState(this, savedState);
         }
 
         outState.putBundle(KEY_SAVED_STATE, savedState);
-
         return outState;
     }
 
     private void restoreInstanceState(@NonNull Bundle savedInstanceState) {
+        long traceStart = ConductorTrace.beginSection("restoreInstanceState", this);
+        try {
+            performRestoreInstanceState(savedInstanceState);
+        } finally {
+            ConductorTrace.endSection("restoreInstanceState", this, traceStart);
+        }
+    }
+
+    private void performRestoreInstanceState(@NonNull Bundle savedInstanceState) {
         viewState = savedInstanceState.getBundle(KEY_VIEW_STATE);
         if (viewState != null) {
             viewState.setClassLoader(getClass().getClassLoader());
@@ -1075,6 +1522,8 @@ public abstract class Controller {
         overriddenPopHandler = ControllerChangeHandler.fromBundle(savedInstanceState.getBundle(KEY_OVERRIDDEN_POP_HANDLER));
         needsAttach = savedInstanceState.getBoolean(KEY_NEEDS_ATTACH);
         retainViewMode = RetainViewMode.values()[savedInstanceState.getInt(KEY_RETAIN_VIEW_MODE, 0)];
+        inflatesViewAsync = savedInstanceState.getBoolean(KEY_INFLATES_VIEW_ASYNC);
+        cachesSavedState = savedInstanceState.getBoolean(KEY_CACHES_SAVED_STATE);
 
         List<Bundle> childBundles = savedInstanceState.getParcelableArrayList(KEY_CHILD_ROUTERS);
         for (Bundle childBundle : childBundles) {
@@ -1084,23 +1533,86 @@ public abstract class Controller {
             childRouters.add(childRouter);
         }
 
-        List<String> childBackstackIds = savedInstanceState.getStringArrayList(KEY_CHILD_BACKSTACK);
-        for (String controllerId : childBackstackIds) {
-            Controller childController = findController(controllerId);
-            if (childController != null) {
-                childBackstack.add(childController);
-            }
-        }
+        childBackstack.addAll(savedInstanceState.getStringArrayList(KEY_CHILD_BACKSTACK));
 
         this.savedInstanceState = savedInstanceState.getBundle(KEY_SAVED_STATE);
         performOnRestoreInstanceState();
     }
 
+    /**
+     * Returns whether or not this Controller can be replaced by its saved state without anything noticing, which is
+     * the case if neither it nor any of its descendants have a view or are in the middle of being changed.
+     */
+    final boolean canHibernate() {
+        if (attached || view != null || needsAttach || isBeingDestroyed || destroyed || pendingInflation != null) {
+            return false;
+        }
+
+        for (ControllerHostedRouter childRouter : childRouters) {
+            if (!childRouter.destroyingControllers.isEmpty()) {
+                return false;
+            }
+
+            for (RouterTransaction transaction : childRouter.backstack) {
+                Controller controller = transaction.peekController();
+                if (controller != null && !controller.canHibernate()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes this Controller and all of its descendants from the passed LifecycleHandler's lookup registry, so that
+     * they can be recreated from their saved state once they're needed again.
+     */
+    final void unregisterHierarchy(@NonNull LifecycleHandler lifecycleHandler) {
+        lifecycleHandler.unregisterController(this);
+
+        for (ControllerHostedRouter childRouter : childRouters) {
+            for (RouterTransaction transaction : childRouter.backstack) {
+                Controller controller = transaction.peekController();
+                if (controller != null) {
+                    controller.unregisterHierarchy(lifecycleHandler);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the uptime at which this Controller was last detached, or 0 if it never was.
+     */
+    final long getDetachedUptimeMillis() {
+        return detachedUptimeMillis;
+    }
+
+    /**
+     * A cached Bundle embeds the states of all child Controllers, so it can only be reused if every one of them
+     * invalidates it when it changes.
+     */
+    private boolean canCacheSavedState() {
+        if (!cachesSavedState) {
+            return false;
+        }
+
+        for (ControllerHostedRouter childRouter : childRouters) {
+            for (RouterTransaction transaction : childRouter.backstack) {
+                // Controllers that haven't been created yet can't change
+                Controller controller = transaction.peekController();
+                if (controller != null && !controller.canCacheSavedState()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     private void performOnRestoreInstanceState() {
         if (savedInstanceState != null && router != null) {
             onRestoreInstanceState(savedInstanceState);
 
-            List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+            LifecycleListener[] listeners = getDispatchListeners();
             for (LifecycleListener lifecycleListener : listeners) {
                 lifecycleListener.onRestoreInstanceState(this, savedInstanceState);
             }
@@ -1111,14 +1623,14 @@ public abstract class Controller {
 
     final void changeStarted(@NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
         if (!changeType.isEnter) {
-            for (ControllerHostedRouter router : childRouters) {
-                router.setDetachFrozen(true);
+            for (int i = 0; i < childRouters.size(); i++) {
+                childRouters.get(i).setDetachFrozen(true);
             }
         }
 
         onChangeStarted(changeHandler, changeType);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = getDispatchListeners();
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.onChangeStart(this, changeHandler, changeType);
         }
@@ -1126,14 +1638,14 @@ public abstract class Controller {
 
     final void changeEnded(@NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
         if (!changeType.isEnter) {
-            for (ControllerHostedRouter router : childRouters) {
-                router.setDetachFrozen(false);
+            for (int i = 0; i < childRouters.size(); i++) {
+                childRouters.get(i).setDetachFrozen(false);
             }
         }
 
         onChangeEnded(changeHandler, changeType);
 
-        List<LifecycleListener> listeners = new ArrayList<>(lifecycleListeners);
+        LifecycleListener[] listeners = getDispatchListeners();
         for (LifecycleListener lifecycleListener : listeners) {
             lifecycleListener.onChangeEnd(this, changeHandler, changeType);
         }
@@ -1181,15 +1693,11 @@ public abstract class Controller {
         childRouter.setOnControllerPushedListener(onControllerPushedListener);
     }
 
-    private void onChildControllerPushed(@NonNull Controller controller) {
-        if (!childBackstack.contains(controller)) {
-            childBackstack.add(controller);
-            controller.addLifecycleListener(new LifecycleListener() {
-                @Override
-                public void postDestroy(@NonNull Controller controller) {
-                    childBackstack.remove(controller);
-                }
-            });
+    private void onChildControllerPushed(@NonNull RouterTransaction transaction) {
+        // Destroyed children remove themselves through their parentController reference.
+        if (!childBackstack.contains(transaction.instanceId())) {
+            childBackstack.add(transaction.instanceId());
+            invalidateSavedState();
         }
     }
 
@@ -1197,31 +1705,31 @@ public abstract class Controller {
         parentController = controller;
     }
 
-    private void ensureRequiredConstructor() {
-        Constructor[] constructors = getClass().getConstructors();
-        if (getBundleConstructor(constructors) == null && getDefaultConstructor(constructors) == null) {
-            throw new RuntimeException(getClass() + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
-        }
-    }
-
     @Nullable
-    private static Constructor getDefaultConstructor(@NonNull Constructor[] constructors) {
-        for (Constructor constructor : constructors) {
-            if (constructor.getParameterTypes().length == 0) {
-                return constructor;
+    private RouterTransaction findChildTransaction(@NonNull String instanceId) {
+        for (int i = 0; i < childRouters.size(); i++) {
+            RouterTransaction transaction = childRouters.get(i).backstack.findByInstanceId(instanceId);
+            if (transaction != null) {
+                return transaction;
             }
         }
         return null;
     }
 
     @Nullable
-    private static Constructor getBundleConstructor(@NonNull Constructor[] constructors) {
-        for (Constructor constructor : constructors) {
-            if (constructor.getParameterTypes().length == 1 && constructor.getParameterTypes()[0] == Bundle.class) {
-                return constructor;
-            }
+    private Controller findCreatedChild(@NonNull String instanceId) {
+        RouterTransaction transaction = findChildTransaction(instanceId);
+        return transaction != null ? transaction.peekController() : null;
+    }
+
+    private void ensureRequiredConstructor() {
+        ensureRequiredConstructor(getClass());
+    }
+
+    static void ensureRequiredConstructor(@NonNull Class<? extends Controller> cls) {
+        if (Conductor.getControllerFactory(cls.getName()) == null && ClassUtils.getConstructor(cls, Bundle.class) == null && ClassUtils.getConstructor(cls) == null) {
+            throw new RuntimeException(cls + " does not have a constructor that takes a Bundle argument or a default constructor. Controllers must have one of these in order to restore their states.");
         }
-        return null;
     }
 
     /** Modes that will influence when the Controller will allow its view to be destroyed */
@@ -1229,7 +1737,12 @@ public abstract class Controller {
         /** The Controller will release its reference to its view as soon as it is detached. */
         RELEASE_DETACH,
         /** The Controller will retain its reference to its view when detached, but will still release the reference when a config change occurs. */
-        RETAIN_DETACH
+        RETAIN_DETACH,
+        /**
+         * The Controller will retain its reference to its view when detached, as long as it is among the most recently
+         * detached views retained this way by its Router hierarchy. Views are also released when memory runs low.
+         */
+        RETAIN_BOUNDED
     }
 
     /** Allows external classes to listen for lifecycle events in a Controller */
@@ -5,15 +5,12 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.view.View;
 import android.view.ViewGroup;
-import android.view.ViewParent;
 
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.internal.ClassUtils;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * ControllerChangeHandlers are responsible for swapping the View for one Controller to the View
@@ -25,8 +22,6 @@ public abstract class ControllerChangeHandler {
     private static final String KEY_CLASS_NAME = "ControllerChangeHandler.className";
     private static final String KEY_SAVED_STATE = "ControllerChangeHandler.savedState";
 
-    private static final Map<String, ControllerChangeHandler> inProgressPushHandlers = new HashMap<>();
-
     private boolean forceRemoveViewOnPush;
     private boolean hasBeenUsed;
 
@@ -76,12 +71,18 @@ public abstract class ControllerChangeHandler {
 
     /**
      * Returns a copy of this ControllerChangeHandler. This method is internally used by the library, so
-     * ensure it will return an exact copy of your handler if overriding. If not overriding, the handler
-     * will be saved and restored from the Bundle format.
+     * ensure it will return an exact copy of your handler if overriding. If not overriding, the handler's
+     * state will be copied over through {@link #saveToBundle(Bundle)} and {@link #restoreFromBundle(Bundle)},
+     * so handlers that aren't reusable should override this to create their copy directly.
      */
     @NonNull
     public ControllerChangeHandler copy() {
-        return fromBundle(toBundle());
+        ControllerChangeHandler copy = ClassUtils.newInstance(getClass());
+
+        Bundle savedState = new Bundle();
+        saveToBundle(savedState);
+        copy.restoreFromBundle(savedState);
+        return copy;
     }
 
     /**
@@ -107,9 +108,7 @@ public abstract class ControllerChangeHandler {
     }
 
     private void ensureDefaultConstructor() {
-        try {
-            getClass().getConstructor();
-        } catch (Exception e) {
+        if (ClassUtils.getConstructor(getClass()) == null) {
             throw new RuntimeException(getClass() + " does not have a default constructor.");
         }
     }
@@ -127,29 +126,37 @@ public abstract class ControllerChangeHandler {
         }
     }
 
-    static boolean completePushImmediately(@NonNull String controllerInstanceId) {
-        ControllerChangeHandler changeHandler = inProgressPushHandlers.get(controllerInstanceId);
-        if (changeHandler != null) {
-            changeHandler.completeImmediately();
-            inProgressPushHandlers.remove(controllerInstanceId);
-            return true;
-        }
-        return false;
-    }
-
     public static void abortPush(@NonNull Controller toAbort, @Nullable Controller newController, @NonNull ControllerChangeHandler newChangeHandler) {
-        ControllerChangeHandler handlerForPush = inProgressPushHandlers.get(toAbort.getInstanceId());
-        if (handlerForPush != null) {
-            handlerForPush.onAbortPush(newChangeHandler, newController);
-            inProgressPushHandlers.remove(toAbort.getInstanceId());
+        Router router = toAbort.getRouter();
+        if (router != null) {
+            router.abortPush(toAbort.getInstanceId(), newController, newChangeHandler);
         }
     }
 
     public static void executeChange(@Nullable final Controller to, @Nullable final Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler inHandler) {
-        executeChange(to, from, isPush, container, inHandler, new ArrayList<ControllerChangeListener>());
+        executeChange(to, from, isPush, container, inHandler, Collections.<ControllerChangeListener>emptyList());
     }
 
     public static void executeChange(@Nullable final Controller to, @Nullable final Controller from, final boolean isPush, @Nullable final ViewGroup container, @Nullable final ControllerChangeHandler inHandler, @NonNull final List<ControllerChangeListener> listeners) {
+        executeChange(to, from, isPush, container, inHandler, listeners, false);
+    }
+
+    /**
+     * @param forceRemoveFromView Whether or not the from view should be removed once the change completes, even if
+     *                            the handler doesn't remove it. Unlike {@link #setForceRemoveViewOnPush(boolean)},
+     *                            this only applies to this change, so shared handlers don't need to be copied.
+     */
+    static void executeChange(@Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler inHandler, @NonNull List<ControllerChangeListener> listeners, boolean forceRemoveFromView) {
+        Controller tracedController = to != null ? to : from;
+        long traceStart = ConductorTrace.beginSection("executeChange", tracedController);
+        try {
+            executeChangeInternal(to, from, isPush, container, inHandler, listeners, forceRemoveFromView);
+        } finally {
+            ConductorTrace.endSection("executeChange", tracedController, traceStart);
+        }
+    }
+
+    private static void executeChangeInternal(@Nullable Controller to, @Nullable Controller from, boolean isPush, @Nullable ViewGroup container, @Nullable ControllerChangeHandler inHandler, @NonNull List<ControllerChangeListener> listeners, boolean forceRemoveFromView) {
         if (isPush && to != null && to.isDestroyed()) {
             throw new IllegalStateException("Trying to push a controller that has already been destroyed. (" + to.getClass().getSimpleName() + ")");
         }
@@ -165,63 +172,42 @@ public abstract class ControllerChangeHandler {
             }
             handler.hasBeenUsed = true;
 
-            if (isPush && to != null) {
-                inProgressPushHandlers.put(to.getInstanceId(), handler);
-
-                if (from != null) {
-                    completePushImmediately(from.getInstanceId());
+            Router router = to != null ? to.getRouter() : from != null ? from.getRouter() : null;
+            if (router != null) {
+                if (isPush && from != null) {
+                    router.completePushImmediately(from.getInstanceId());
+                } else if (!isPush && from != null) {
+                    router.abortPush(from.getInstanceId(), to, handler);
                 }
-            } else if (!isPush && from != null) {
-                abortPush(from, to, handler);
             }
 
-            for (ControllerChangeListener listener : listeners) {
-                listener.onChangeStarted(to, from, isPush, container, handler);
+            PendingChange change = new PendingChange(to, from, isPush, container, handler, listeners, router, forceRemoveFromView);
+            if (router != null) {
+                router.addInProgressChange(change);
             }
 
-            final ControllerChangeType toChangeType = isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER;
-            final ControllerChangeType fromChangeType = isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT;
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).onChangeStarted(to, from, isPush, container, handler);
+            }
 
-            final View toView;
+            View toView;
             if (to != null) {
                 toView = to.inflate(container);
-                to.changeStarted(handler, toChangeType);
+                to.changeStarted(handler, isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER);
             } else {
                 toView = null;
             }
 
-            final View fromView;
+            View fromView;
             if (from != null) {
                 fromView = from.getView();
-                from.changeStarted(handler, fromChangeType);
+                from.changeStarted(handler, isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT);
             } else {
                 fromView = null;
             }
 
-            handler.performChange(container, fromView, toView, isPush, new ControllerChangeCompletedListener() {
-                @Override
-                public void onChangeCompleted() {
-                    if (from != null) {
-                        from.changeEnded(handler, fromChangeType);
-                    }
-
-                    if (to != null) {
-                        inProgressPushHandlers.remove(to.getInstanceId());
-                        to.changeEnded(handler, toChangeType);
-                    }
-
-                    for (ControllerChangeListener listener : listeners) {
-                        listener.onChangeCompleted(to, from, isPush, container, handler);
-                    }
-
-                    if (handler.forceRemoveViewOnPush && fromView != null) {
-                        ViewParent fromParent = fromView.getParent();
-                        if (fromParent != null && fromParent instanceof ViewGroup) {
-                            ((ViewGroup)fromParent).removeView(fromView);
-                        }
-                    }
-                }
-            });
+            change.start(fromView);
+            handler.performChange(container, fromView, toView, isPush, change);
         }
     }
 
@@ -233,6 +219,10 @@ public abstract class ControllerChangeHandler {
         forceRemoveViewOnPush = force;
     }
 
+    final boolean forcesRemoveViewOnPush() {
+        return forceRemoveViewOnPush;
+    }
+
     /**
      * A listener interface useful for allowing external classes to be notified of change events.
      */
@@ -0,0 +1,21 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+/**
+ * Creates instances of a single {@link Controller} class without going through reflection. Factories are registered
+ * through {@link Conductor#registerControllerFactory(Class, ControllerFactory)} and are typically generated at compile
+ * time. They are used whenever Conductor needs to re-create a Controller, such as when restoring from a saved state.
+ */
+public interface ControllerFactory {
+
+    /**
+     * Returns a new instance of the Controller class this factory was registered for.
+     *
+     * @param args The arguments the original Controller was created with
+     */
+    @NonNull
+    Controller newInstance(@NonNull Bundle args);
+
+}
@@ -9,6 +9,7 @@ import android.support.annotation.Nullable;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.internal.LifecycleHandler;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,6 +41,14 @@ class ControllerHostedRouter extends Router {
 
             hostController = controller;
             this.container = container;
+
+            // Controllers that haven't been created yet get their parent once they are
+            for (RouterTransaction transaction : backstack) {
+                Controller backstackController = transaction.peekController();
+                if (backstackController != null) {
+                    backstackController.setParentController(controller);
+                }
+            }
         }
     }
 
@@ -55,8 +64,9 @@ class ControllerHostedRouter extends Router {
             }
         }
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller.getView() != null) {
-                transaction.controller.detach(transaction.controller.getView(), true);
+            Controller controller = transaction.peekController();
+            if (controller != null && controller.getView() != null) {
+                controller.detach(controller.getView(), true);
             }
         }
 
@@ -67,7 +77,10 @@ class ControllerHostedRouter extends Router {
 
     final void setDetachFrozen(boolean frozen) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.setDetachFrozen(frozen);
+            Controller controller = transaction.peekController();
+            if (controller != null) {
+                controller.setDetachFrozen(frozen);
+            }
         }
     }
 
@@ -158,6 +171,14 @@ class ControllerHostedRouter extends Router {
         outState.putString(KEY_TAG, tag);
     }
 
+    @Override
+    void snapshotInstanceState(@NonNull Bundle outState) {
+        super.snapshotInstanceState(outState);
+
+        outState.putInt(KEY_HOST_ID, hostId);
+        outState.putString(KEY_TAG, tag);
+    }
+
     @Override
     public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
         super.restoreInstanceState(savedInstanceState);
@@ -166,6 +187,15 @@ class ControllerHostedRouter extends Router {
         tag = savedInstanceState.getString(KEY_TAG);
     }
 
+    @Override
+    void onBackstackChanged() {
+        super.onBackstackChanged();
+
+        if (hostController != null) {
+            hostController.invalidateSavedState();
+        }
+    }
+
     @Override
     void setControllerRouter(@NonNull Controller controller) {
         super.setControllerRouter(controller);
@@ -197,4 +227,18 @@ class ControllerHostedRouter extends Router {
             return this;
         }
     }
+
+    @Override @Nullable
+    Router getParentRouter() {
+        return hostController != null ? hostController.getRouter() : null;
+    }
+
+    @Override @Nullable
+    LifecycleHandler getLifecycleHandler() {
+        if (hostController != null && hostController.getRouter() != null) {
+            return hostController.getRouter().getLifecycleHandler();
+        } else {
+            return null;
+        }
+    }
 }
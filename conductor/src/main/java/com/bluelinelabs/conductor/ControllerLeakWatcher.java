@@ -0,0 +1,298 @@
+package com.bluelinelabs.conductor;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.view.View;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A debugging aid that reports {@link Controller}s that are still reachable some time after being destroyed, as well
+ * as views that are still reachable some time after their Controller released them. Install through
+ * {@link Conductor#setLeakWatcher(ControllerLeakWatcher)}. Each check forces a garbage collection, so this should not
+ * be enabled in release builds.
+ */
+public final class ControllerLeakWatcher {
+
+    private static final long DEFAULT_RETAINED_DELAY_MILLIS = 5000;
+    private static final int MAX_HISTORY_SIZE = 16;
+
+    private final LeakListener listener;
+    private final long retainedDelayMillis;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final List<WatchedReference> watchedReferences = new ArrayList<>();
+    // Only accessed from the main thread
+    private final Map<Controller, LifecycleHistory> histories = new WeakHashMap<>();
+
+    private ScheduledExecutorService executor;
+
+    private final Runnable checkRunnable = new Runnable() {
+        @Override
+        public void run() {
+            check();
+        }
+    };
+
+    public ControllerLeakWatcher(@NonNull LeakListener listener) {
+        this(listener, DEFAULT_RETAINED_DELAY_MILLIS);
+    }
+
+    /**
+     * @param listener The listener leaks are reported to
+     * @param retainedDelayMillis How long a destroyed Controller or released view may remain reachable before it is
+     *                            reported as leaked
+     */
+    public ControllerLeakWatcher(@NonNull LeakListener listener, long retainedDelayMillis) {
+        if (retainedDelayMillis < 0) {
+            throw new IllegalArgumentException("Retained delay must not be negative, but was " + retainedDelayMillis);
+        }
+
+        this.listener = listener;
+        this.retainedDelayMillis = retainedDelayMillis;
+    }
+
+    /**
+     * Returns the number of destroyed Controllers and released views that have neither been collected nor reported
+     * yet.
+     */
+    public synchronized int getWatchedCount() {
+        removeCollectedReferences();
+        return watchedReferences.size();
+    }
+
+    void recordLifecycleEvent(@NonNull Controller controller, @NonNull String event) {
+        LifecycleHistory history = histories.get(controller);
+        if (history == null) {
+            history = new LifecycleHistory();
+            histories.put(controller, history);
+        }
+        history.add(event);
+    }
+
+    void watchController(@NonNull Controller controller) {
+        watch(controller, Leak.Kind.CONTROLLER, controller);
+        histories.remove(controller);
+    }
+
+    void watchView(@NonNull Controller controller, @NonNull View view) {
+        watch(view, Leak.Kind.VIEW, controller);
+    }
+
+    private void watch(@NonNull Object object, @NonNull Leak.Kind kind, @NonNull Controller controller) {
+        LifecycleHistory history = histories.get(controller);
+        List<String> events = history != null ? history.snapshot() : Collections.<String>emptyList();
+        WatchedReference reference = new WatchedReference(object, queue, kind, controller.getClass().getName(), controller.getInstanceId(),
+                events, SystemClock.uptimeMillis());
+
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            removeCollectedReferences();
+            watchedReferences.add(reference);
+
+            if (this.executor == null) {
+                this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "ConductorLeakWatcher");
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        return thread;
+                    }
+                });
+            }
+            executor = this.executor;
+        }
+
+        executor.schedule(checkRunnable, retainedDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Forces a garbage collection if anything is still being watched and reports everything that has been watched
+     * for at least the retained delay but is still reachable afterwards. The lock is only held while looking at the
+     * watched references, so that watching more objects from the main thread is never blocked by the collection.
+     */
+    void check() {
+        List<WatchedReference> candidates;
+        synchronized (this) {
+            removeCollectedReferences();
+            if (watchedReferences.isEmpty()) {
+                return;
+            }
+            candidates = new ArrayList<>(watchedReferences);
+        }
+
+        runGc();
+
+        List<Leak> leaks = new ArrayList<>();
+        synchronized (this) {
+            removeCollectedReferences();
+
+            long now = SystemClock.uptimeMillis();
+            for (WatchedReference reference : candidates) {
+                long retainedMillis = now - reference.watchUptimeMillis;
+                // Checks running at the same time only report each reference once
+                if (retainedMillis >= retainedDelayMillis && reference.get() != null && watchedReferences.remove(reference)) {
+                    leaks.add(new Leak(reference.kind, reference.controllerClassName, reference.instanceId, reference.lifecycleHistory,
+                            retainedMillis));
+                }
+            }
+        }
+
+        for (Leak leak : leaks) {
+            listener.onLeakDetected(leak);
+        }
+    }
+
+    private void removeCollectedReferences() {
+        Object reference;
+        while ((reference = queue.poll()) != null) {
+            watchedReferences.remove(reference);
+        }
+    }
+
+    private static void runGc() {
+        // System.gc() is only a hint, Runtime.gc() is more likely to actually collect
+        Runtime.getRuntime().gc();
+        try {
+            // Give the reference queue a chance to be populated
+            Thread.sleep(100);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.runFinalization();
+    }
+
+    /**
+     * Receives leaks found by a {@link ControllerLeakWatcher}. Called on a background thread.
+     */
+    public interface LeakListener {
+        void onLeakDetected(@NonNull Leak leak);
+    }
+
+    /**
+     * Describes a destroyed Controller, or a view released by a Controller, that was still reachable after the
+     * retained delay and a garbage collection.
+     */
+    public static final class Leak {
+
+        public enum Kind {
+            CONTROLLER,
+            VIEW
+        }
+
+        private final Kind kind;
+        private final String controllerClassName;
+        private final String instanceId;
+        private final List<String> lifecycleHistory;
+        private final long retainedMillis;
+
+        Leak(@NonNull Kind kind, @NonNull String controllerClassName, @NonNull String instanceId, @NonNull List<String> lifecycleHistory,
+             long retainedMillis) {
+            this.kind = kind;
+            this.controllerClassName = controllerClassName;
+            this.instanceId = instanceId;
+            this.lifecycleHistory = lifecycleHistory;
+            this.retainedMillis = retainedMillis;
+        }
+
+        /**
+         * Returns whether the Controller itself or one of the views it released has leaked.
+         */
+        @NonNull
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the class name of the leaked Controller, or of the Controller that released the leaked view.
+         */
+        @NonNull
+        public String getControllerClassName() {
+            return controllerClassName;
+        }
+
+        @NonNull
+        public String getInstanceId() {
+            return instanceId;
+        }
+
+        /**
+         * Returns the most recent lifecycle events of the Controller up to the point it started being watched, oldest
+         * first, each with the uptime it happened at.
+         */
+        @NonNull
+        public List<String> getLifecycleHistory() {
+            return lifecycleHistory;
+        }
+
+        /**
+         * Returns how long the leaked object had been watched for when it was reported.
+         */
+        public long getRetainedMillis() {
+            return retainedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return (kind == Kind.CONTROLLER ? "Leaked Controller " : "Leaked view of Controller ") + controllerClassName + " (" + instanceId
+                    + "), retained for " + retainedMillis + "ms after " + lifecycleHistory;
+        }
+    }
+
+    private static final class WatchedReference extends WeakReference<Object> {
+
+        final Leak.Kind kind;
+        final String controllerClassName;
+        final String instanceId;
+        final List<String> lifecycleHistory;
+        final long watchUptimeMillis;
+
+        WatchedReference(@NonNull Object referent, @NonNull ReferenceQueue<Object> queue, @NonNull Leak.Kind kind, @NonNull String controllerClassName,
+                         @NonNull String instanceId, @NonNull List<String> lifecycleHistory, long watchUptimeMillis) {
+            super(referent, queue);
+            this.kind = kind;
+            this.controllerClassName = controllerClassName;
+            this.instanceId = instanceId;
+            this.lifecycleHistory = lifecycleHistory;
+            this.watchUptimeMillis = watchUptimeMillis;
+        }
+    }
+
+    private static final class LifecycleHistory {
+
+        private final String[] events = new String[MAX_HISTORY_SIZE];
+        private int start;
+        private int size;
+
+        void add(@NonNull String event) {
+            String entry = event + "@" + SystemClock.uptimeMillis();
+            if (size < events.length) {
+                events[(start + size++) % events.length] = entry;
+            } else {
+                events[start] = entry;
+                start = (start + 1) % events.length;
+            }
+        }
+
+        @NonNull
+        List<String> snapshot() {
+            List<String> snapshot = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                snapshot.add(events[(start + i) % events.length]);
+            }
+            return Collections.unmodifiableList(snapshot);
+        }
+    }
+
+}
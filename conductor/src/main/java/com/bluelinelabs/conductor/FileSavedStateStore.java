@@ -0,0 +1,116 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.UUID;
+
+/**
+ * A {@link SavedStateStore} that keeps each piece of saved state in its own file in an app-private directory. By
+ * default the app's cache directory is used, so that state orphaned by a process that was never restored is
+ * eventually cleaned up by the system. Stores using another directory can clean up through
+ * {@link #deleteEntriesOlderThan(long)}.
+ */
+public class FileSavedStateStore implements SavedStateStore {
+
+    private static final String DEFAULT_DIRECTORY = "conductor-saved-state";
+
+    private final File directory;
+
+    /**
+     * Creates a store that writes to a dedicated directory inside of the app's cache directory.
+     */
+    public FileSavedStateStore(@NonNull Context context) {
+        this(new File(context.getCacheDir(), DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * Creates a store that writes to the passed directory, which will be created if needed. The directory
+     * should not be shared with anything else.
+     */
+    public FileSavedStateStore(@NonNull File directory) {
+        this.directory = directory;
+    }
+
+    @NonNull @Override
+    public String write(@NonNull byte[] data) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create directory " + directory);
+        }
+
+        String token = UUID.randomUUID().toString();
+
+        FileOutputStream outputStream = new FileOutputStream(fileFor(token));
+        try {
+            FileChannel channel = outputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            outputStream.close();
+        }
+
+        return token;
+    }
+
+    @NonNull @Override
+    public byte[] read(@NonNull String token) throws IOException {
+        FileInputStream inputStream = new FileInputStream(fileFor(token));
+        try {
+            FileChannel channel = inputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate((int)channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("Unexpected end of saved state " + token);
+                }
+            }
+            return buffer.array();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @Override
+    public void delete(@NonNull String token) {
+        //noinspection ResultOfMethodCallIgnored
+        fileFor(token).delete();
+    }
+
+    /**
+     * Deletes all entries that were written longer ago than the passed age. Entries that a Router may still restore
+     * from must not be deleted, so this is best called on startup, before any Router is restored, with an age that
+     * is longer than the Activities' saved state is expected to be kept around.
+     *
+     * @param maxAgeMillis The age in milliseconds above which entries are deleted
+     */
+    public void deleteEntriesOlderThan(long maxAgeMillis) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long cutoff = System.currentTimeMillis() - maxAgeMillis;
+        for (File file : files) {
+            if (file.lastModified() < cutoff) {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+    }
+
+    @NonNull
+    private File fileFor(@NonNull String token) {
+        if (token.indexOf(File.separatorChar) >= 0) {
+            throw new IllegalArgumentException("Invalid saved state token " + token);
+        }
+        return new File(directory, token);
+    }
+
+}
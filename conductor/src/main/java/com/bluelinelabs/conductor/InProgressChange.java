@@ -0,0 +1,65 @@
+package com.bluelinelabs.conductor;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * Describes a change between two {@link Controller}s that a {@link Router} has started but that its
+ * {@link ControllerChangeHandler} hasn't reported as completed yet.
+ */
+public final class InProgressChange {
+
+    private final Controller to;
+    private final Controller from;
+    private final boolean isPush;
+    private final ControllerChangeHandler changeHandler;
+    private final long startUptimeMillis;
+
+    InProgressChange(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ControllerChangeHandler changeHandler, long startUptimeMillis) {
+        this.to = to;
+        this.from = from;
+        this.isPush = isPush;
+        this.changeHandler = changeHandler;
+        this.startUptimeMillis = startUptimeMillis;
+    }
+
+    /**
+     * Returns the Controller being changed to, if any.
+     */
+    @Nullable
+    public Controller getTo() {
+        return to;
+    }
+
+    /**
+     * Returns the Controller being changed from, if any.
+     */
+    @Nullable
+    public Controller getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns true if this is a push, or false if it's a pop.
+     */
+    public boolean isPush() {
+        return isPush;
+    }
+
+    /**
+     * Returns the change handler performing this change.
+     */
+    @NonNull
+    public ControllerChangeHandler getChangeHandler() {
+        return changeHandler;
+    }
+
+    /**
+     * Returns the time this change was started at, as measured by {@link SystemClock#uptimeMillis()}.
+     */
+    public long getStartUptimeMillis() {
+        return startUptimeMillis;
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Process;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Records a timeline of navigation events, such as changes between {@link Controller}s and their lifecycle
+ * callbacks, which can be written out in the Chrome trace event format and opened in chrome://tracing or Perfetto.
+ * Only the most recent events are kept once the capacity has been reached. Install through
+ * {@link ConductorTrace#setRecorder(NavigationTraceRecorder)}.
+ */
+public final class NavigationTraceRecorder {
+
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    private static final char PHASE_COMPLETE = 'X';
+    private static final char PHASE_ASYNC_BEGIN = 'b';
+    private static final char PHASE_ASYNC_END = 'e';
+
+    private final String[] names;
+    private final String[] controllerNames;
+    private final String[] instanceIds;
+    private final char[] phases;
+    private final long[] timestamps;
+    private final long[] durations;
+    private final int[] threadIds;
+    private final int[] asyncIds;
+
+    private int start;
+    private int size;
+    private int lastAsyncId;
+
+    public NavigationTraceRecorder() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The maximum number of events to keep
+     */
+    public NavigationTraceRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, but was " + capacity);
+        }
+
+        names = new String[capacity];
+        controllerNames = new String[capacity];
+        instanceIds = new String[capacity];
+        phases = new char[capacity];
+        timestamps = new long[capacity];
+        durations = new long[capacity];
+        threadIds = new int[capacity];
+        asyncIds = new int[capacity];
+    }
+
+    /**
+     * Returns the number of events currently being kept.
+     */
+    public synchronized int getEventCount() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < names.length; i++) {
+            names[i] = null;
+            controllerNames[i] = null;
+            instanceIds[i] = null;
+        }
+        start = 0;
+        size = 0;
+    }
+
+    /**
+     * Writes all events currently being kept to the passed file in the Chrome trace event format.
+     */
+    public void writeTo(@NonNull File file) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writeTo(writer);
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes all events currently being kept to the passed writer in the Chrome trace event format. The writer is
+     * not closed.
+     */
+    public synchronized void writeTo(@NonNull Writer writer) throws IOException {
+        int pid = Process.myPid();
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        for (int i = 0; i < size; i++) {
+            int index = (start + i) % names.length;
+
+            writer.write(i == 0 ? "\n" : ",\n");
+            writer.write("{\"name\":");
+            writeString(writer, names[index]);
+            writer.write(",\"cat\":\"conductor\",\"ph\":\"");
+            writer.write(phases[index]);
+            writer.write("\",\"ts\":");
+            writeMicros(writer, timestamps[index]);
+            if (phases[index] == PHASE_COMPLETE) {
+                writer.write(",\"dur\":");
+                writeMicros(writer, durations[index]);
+            } else {
+                writer.write(",\"id\":");
+                writer.write(String.valueOf(asyncIds[index]));
+            }
+            writer.write(",\"pid\":");
+            writer.write(String.valueOf(pid));
+            writer.write(",\"tid\":");
+            writer.write(String.valueOf(threadIds[index]));
+            if (controllerNames[index] != null) {
+                writer.write(",\"args\":{\"controller\":");
+                writeString(writer, controllerNames[index]);
+                writer.write(",\"instanceId\":");
+                writeString(writer, instanceIds[index]);
+                writer.write("}");
+            }
+            writer.write("}");
+        }
+        writer.write("\n]}\n");
+    }
+
+    void recordSection(@NonNull String section, @Nullable Controller controller, long startNanos, long endNanos) {
+        add(section, controller, PHASE_COMPLETE, startNanos, endNanos - startNanos, 0);
+    }
+
+    /**
+     * Records the start of a change and returns the id its end should be recorded with.
+     */
+    synchronized int recordChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush) {
+        int id = ++lastAsyncId;
+        add(isPush ? "push" : "pop", to != null ? to : from, PHASE_ASYNC_BEGIN, System.nanoTime(), 0, id);
+        return id;
+    }
+
+    void recordChangeCompleted(int id, @Nullable Controller to, @Nullable Controller from, boolean isPush) {
+        add(isPush ? "push" : "pop", to != null ? to : from, PHASE_ASYNC_END, System.nanoTime(), 0, id);
+    }
+
+    private synchronized void add(@NonNull String name, @Nullable Controller controller, char phase, long timestampNanos, long durationNanos, int asyncId) {
+        int index;
+        if (size < names.length) {
+            index = (start + size) % names.length;
+            size++;
+        } else {
+            index = start;
+            start = (start + 1) % names.length;
+        }
+
+        names[index] = name;
+        controllerNames[index] = controller != null ? controller.getClass().getName() : null;
+        instanceIds[index] = controller != null ? controller.getInstanceId() : null;
+        phases[index] = phase;
+        timestamps[index] = timestampNanos;
+        durations[index] = durationNanos;
+        threadIds[index] = Process.myTid();
+        asyncIds[index] = asyncId;
+    }
+
+    private static void writeMicros(@NonNull Writer writer, long nanos) throws IOException {
+        writer.write(String.valueOf(nanos / 1000));
+        writer.write('.');
+        String fraction = String.valueOf(Math.abs(nanos % 1000));
+        for (int i = fraction.length(); i < 3; i++) {
+            writer.write('0');
+        }
+        writer.write(fraction);
+    }
+
+    private static void writeString(@NonNull Writer writer, @NonNull String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int)c));
+            } else {
+                writer.write(c);
+            }
+        }
+        writer.write('"');
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.bluelinelabs.conductor;
+
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.bluelinelabs.conductor.ConductorMetrics.Metric;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeCompletedListener;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.internal.NoOpControllerChangeHandler;
+
+import java.util.List;
+
+/**
+ * A change that has been handed to a {@link ControllerChangeHandler}, which also serves as the listener it reports
+ * completion through. A new instance is used for every change, so that handlers reporting completion late or more
+ * than once can't affect any other change.
+ */
+final class PendingChange implements ControllerChangeCompletedListener {
+
+    final Controller to;
+    final Controller from;
+    final boolean isPush;
+    final ControllerChangeHandler handler;
+    final long startUptimeMillis;
+
+    private final ViewGroup container;
+    private final List<ControllerChangeListener> listeners;
+    private final Router router;
+    private boolean forceRemoveFromView;
+    private View fromView;
+    private long startNanos;
+    private NavigationTraceRecorder recorder;
+    private int recordedChangeId;
+    private boolean active;
+
+    PendingChange(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler,
+                  @NonNull List<ControllerChangeListener> listeners, @Nullable Router router, boolean forceRemoveFromView) {
+        this.to = to;
+        this.from = from;
+        this.isPush = isPush;
+        this.container = container;
+        this.handler = handler;
+        this.listeners = listeners;
+        this.router = router;
+        this.forceRemoveFromView = forceRemoveFromView;
+        startUptimeMillis = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Called right before the change is handed to the change handler.
+     */
+    void start(@Nullable View fromView) {
+        this.fromView = fromView;
+        active = true;
+
+        startNanos = ConductorMetrics.startTiming();
+        recorder = ConductorTrace.getRecorder();
+        recordedChangeId = recorder != null ? recorder.recordChangeStarted(to, from, isPush) : 0;
+    }
+
+    /**
+     * Aborts this push without another change taking over from it. The change is completed right away, removing the
+     * from view if the push would have done so, even if the handler doesn't report completion after being aborted.
+     */
+    void abort(@Nullable Controller newTop) {
+        // Set before aborting, as some handlers report completion as soon as they're aborted
+        if (handler.removesFromViewOnPush()) {
+            forceRemoveFromView = true;
+        }
+
+        handler.onAbortPush(new NoOpControllerChangeHandler(), newTop);
+        forceComplete();
+    }
+
+    /**
+     * Asks the handler to complete this change immediately and completes it right away even if the handler doesn't
+     * support that, removing the from view if the change would have done so.
+     */
+    void forceComplete() {
+        if (!isPush || handler.removesFromViewOnPush()) {
+            forceRemoveFromView = true;
+        }
+
+        handler.completeImmediately();
+        onChangeCompleted();
+    }
+
+    @Override
+    public void onChangeCompleted() {
+        // Handlers may report completion more than once
+        if (!active) {
+            return;
+        }
+        active = false;
+
+        ConductorMetrics.endTiming(Metric.CHANGE, startNanos);
+        if (recorder != null) {
+            recorder.recordChangeCompleted(recordedChangeId, to, from, isPush);
+        }
+
+        if (from != null) {
+            from.changeEnded(handler, isPush ? ControllerChangeType.PUSH_EXIT : ControllerChangeType.POP_EXIT);
+        }
+
+        if (router != null) {
+            router.removeInProgressChange(this);
+        }
+
+        if (to != null) {
+            to.changeEnded(handler, isPush ? ControllerChangeType.PUSH_ENTER : ControllerChangeType.POP_ENTER);
+        }
+
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onChangeCompleted(to, from, isPush, container, handler);
+        }
+
+        if ((forceRemoveFromView || handler.forcesRemoveViewOnPush()) && fromView != null) {
+            ViewParent fromParent = fromView.getParent();
+            if (fromParent != null && fromParent instanceof ViewGroup) {
+                ((ViewGroup)fromParent).removeView(fromView);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,275 @@
+package com.bluelinelabs.conductor;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.UiThread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps deep links to full backstacks. Each route pairs a pattern, such as {@code "users/{id}/posts/{postId}"}, with
+ * the {@link Controller} class to show and optionally the pattern of the route that should sit below it in the
+ * backstack. Patterns are compiled into a trie of path segments. Literal segments take precedence over parameters, and
+ * matching falls back to a parameter when the literal branch doesn't lead to a route. Without such fallbacks, matching
+ * a link takes time proportional to its number of segments. With them it can visit more of the trie, but never more
+ * nodes than the registered patterns have segments in total.
+ * <p>
+ * Links are matched on their authority, if any, followed by their path segments, so {@code myapp://users/42} and
+ * {@code users/42} both match {@code "users/{id}"}, while {@code https://example.com/users/42} matches
+ * {@code "example.com/users/{id}"}. Matched parameters are passed to each Controller as String arguments, and the
+ * query parameters of the link are passed to the Controller of the matched route as well.
+ * <p>
+ * Routes should all be registered before the table is first used, and the table should only be used from the main
+ * thread.
+ */
+public final class RouteTable {
+
+    private final Node root = new Node();
+    private final Map<String, Route> routesByPattern = new HashMap<>();
+
+    /**
+     * Registers a route whose Controller will be the root of the backstack.
+     *
+     * @param pattern The pattern links must match, with parameters in braces
+     * @param controllerClass The Controller to show. It must have a constructor that takes a Bundle or a default
+     *                        constructor, or be registered through
+     *                        {@link Conductor#registerControllerFactory(Class, ControllerFactory)}.
+     */
+    @NonNull
+    public RouteTable addRoute(@NonNull String pattern, @NonNull Class<? extends Controller> controllerClass) {
+        return addRoute(pattern, controllerClass, null);
+    }
+
+    /**
+     * Registers a route that will be placed on top of the backstack built for another route.
+     *
+     * @param pattern The pattern links must match, with parameters in braces
+     * @param controllerClass The Controller to show. It must have a constructor that takes a Bundle or a default
+     *                        constructor, or be registered through
+     *                        {@link Conductor#registerControllerFactory(Class, ControllerFactory)}.
+     * @param parentPattern The pattern of an already registered route whose backstack this one is pushed onto, or
+     *                      null if this route's Controller should be the root. All of the parent's parameters must
+     *                      also be parameters of this route.
+     */
+    @NonNull
+    public RouteTable addRoute(@NonNull String pattern, @NonNull Class<? extends Controller> controllerClass, @Nullable String parentPattern) {
+        Route parent = null;
+        if (parentPattern != null) {
+            parent = routesByPattern.get(parentPattern);
+            if (parent == null) {
+                throw new IllegalArgumentException("The parent route " + parentPattern + " must be registered before " + pattern);
+            }
+        }
+
+        List<String> segments = splitPattern(pattern);
+        String[] paramNames = new String[segments.size()];
+
+        Node node = root;
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}') {
+                paramNames[i] = segment.substring(1, segment.length() - 1);
+                if (node.param == null) {
+                    node.param = new Node();
+                }
+                node = node.param;
+            } else {
+                Node next = node.literals.get(segment);
+                if (next == null) {
+                    next = new Node();
+                    node.literals.put(segment, next);
+                }
+                node = next;
+            }
+        }
+
+        if (node.route != null) {
+            throw new IllegalArgumentException("The route " + pattern + " conflicts with " + node.route.pattern);
+        }
+
+        if (parent != null) {
+            for (String parentParamName : parent.paramNames) {
+                if (parentParamName != null && !contains(paramNames, parentParamName)) {
+                    throw new IllegalArgumentException("The route " + pattern + " is missing the parameter " + parentParamName + " of its parent route " + parent.pattern);
+                }
+            }
+        }
+
+        Route route = new Route(pattern, controllerClass, paramNames, parent);
+        node.route = route;
+        routesByPattern.put(pattern, route);
+        return this;
+    }
+
+    /**
+     * Returns the backstack for the passed link, ordered from root to top, or null if no route matches it. The
+     * Controllers in the returned backstack are only created once they're needed.
+     */
+    @Nullable
+    public List<RouterTransaction> buildBackstack(@NonNull String link) {
+        return buildBackstack(Uri.parse(link));
+    }
+
+    /**
+     * Returns the backstack for the passed link, ordered from root to top, or null if no route matches it. The
+     * Controllers in the returned backstack are only created once they're needed.
+     */
+    @Nullable
+    public List<RouterTransaction> buildBackstack(@NonNull Uri link) {
+        List<String> segments = getSegments(link);
+        Route route = match(root, segments, 0);
+        if (route == null) {
+            return null;
+        }
+
+        Bundle args = new Bundle();
+        for (int i = 0; i < route.paramNames.length; i++) {
+            if (route.paramNames[i] != null) {
+                args.putString(route.paramNames[i], segments.get(i));
+            }
+        }
+
+        List<RouterTransaction> backstack = new ArrayList<>();
+        backstack.add(RouterTransaction.deferred(route.controllerClass, withQueryParameters(args, link)));
+
+        for (Route parent = route.parent; parent != null; parent = parent.parent) {
+            Bundle parentArgs = new Bundle();
+            for (String paramName : parent.paramNames) {
+                if (paramName != null) {
+                    parentArgs.putString(paramName, args.getString(paramName));
+                }
+            }
+            backstack.add(RouterTransaction.deferred(parent.controllerClass, parentArgs));
+        }
+
+        Collections.reverse(backstack);
+        return backstack;
+    }
+
+    /**
+     * Replaces the passed Router's backstack with the one built for the passed link through a single call to
+     * {@link Router#setBackstack(List, ControllerChangeHandler)}.
+     *
+     * @return Whether or not a route matched the link. The backstack is left untouched if none did.
+     */
+    @UiThread
+    public boolean navigate(@NonNull Router router, @NonNull String link, @Nullable ControllerChangeHandler changeHandler) {
+        return navigate(router, Uri.parse(link), changeHandler);
+    }
+
+    /**
+     * Replaces the passed Router's backstack with the one built for the passed link through a single call to
+     * {@link Router#setBackstack(List, ControllerChangeHandler)}.
+     *
+     * @return Whether or not a route matched the link. The backstack is left untouched if none did.
+     */
+    @UiThread
+    public boolean navigate(@NonNull Router router, @NonNull Uri link, @Nullable ControllerChangeHandler changeHandler) {
+        List<RouterTransaction> backstack = buildBackstack(link);
+        if (backstack == null) {
+            return false;
+        }
+
+        router.setBackstack(backstack, changeHandler);
+        return true;
+    }
+
+    // Each trie node is visited at most once, as every node has a single parent
+    @Nullable
+    private static Route match(@NonNull Node node, @NonNull List<String> segments, int index) {
+        if (index == segments.size()) {
+            return node.route;
+        }
+
+        Node literal = node.literals.get(segments.get(index));
+        if (literal != null) {
+            Route route = match(literal, segments, index + 1);
+            if (route != null) {
+                return route;
+            }
+        }
+
+        return node.param != null ? match(node.param, segments, index + 1) : null;
+    }
+
+    @NonNull
+    private static List<String> getSegments(@NonNull Uri link) {
+        List<String> pathSegments = link.getPathSegments();
+        String authority = link.getAuthority();
+        if (authority == null || authority.isEmpty()) {
+            return pathSegments;
+        }
+
+        List<String> segments = new ArrayList<>(pathSegments.size() + 1);
+        segments.add(authority);
+        segments.addAll(pathSegments);
+        return segments;
+    }
+
+    @NonNull
+    private static List<String> splitPattern(@NonNull String pattern) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        while (start <= pattern.length()) {
+            int end = pattern.indexOf('/', start);
+            if (end == -1) {
+                end = pattern.length();
+            }
+            if (end > start) {
+                segments.add(pattern.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    @NonNull
+    private static Bundle withQueryParameters(@NonNull Bundle args, @NonNull Uri link) {
+        Bundle withQuery = new Bundle(args);
+        if (!link.isOpaque()) {
+            for (String name : link.getQueryParameterNames()) {
+                if (!withQuery.containsKey(name)) {
+                    withQuery.putString(name, link.getQueryParameter(name));
+                }
+            }
+        }
+        return withQuery;
+    }
+
+    private static boolean contains(@NonNull String[] values, @NonNull String value) {
+        for (String candidate : values) {
+            if (value.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node param;
+        Route route;
+    }
+
+    private static final class Route {
+        final String pattern;
+        final Class<? extends Controller> controllerClass;
+        // The parameter name for each segment of the pattern, or null for literal segments
+        final String[] paramNames;
+        final Route parent;
+
+        Route(@NonNull String pattern, @NonNull Class<? extends Controller> controllerClass, @NonNull String[] paramNames, @Nullable Route parent) {
+            this.pattern = pattern;
+            this.controllerClass = controllerClass;
+            this.paramNames = paramNames;
+            this.parent = parent;
+        }
+    }
+
+}
@@ -1,8 +1,10 @@
 package com.bluelinelabs.conductor;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.UiThread;
@@ -15,12 +17,18 @@ import android.view.ViewGroup;
 import com.bluelinelabs.conductor.Controller.LifecycleListener;
 import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
 import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+import com.bluelinelabs.conductor.internal.CompactBundleCodec;
+import com.bluelinelabs.conductor.internal.LifecycleHandler;
 import com.bluelinelabs.conductor.internal.NoOpControllerChangeHandler;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A Router implements navigation and backstack handling for {@link Controller}s. Router objects are attached
@@ -31,13 +39,38 @@ public abstract class Router {
 
     private static final String KEY_BACKSTACK = "Router.backstack";
     private static final String KEY_POPS_LAST_VIEW = "Router.popsLastView";
+    private static final String KEY_COMPACT_BACKSTACK = "Router.backstack.compact";
+    private static final String KEY_SPILLED_BACKSTACK_TOKEN = "Router.backstack.spilledToken";
+
+    private static final long DEFAULT_ASYNC_INFLATION_TIMEOUT_MILLIS = 500;
+    private static final int DEFAULT_MAX_PREFETCHED_VIEWS = 2;
+    private static final int DEFAULT_MAX_RETAINED_VIEWS = 3;
+
+    private static final LifecycleListener[] NO_LIFECYCLE_LISTENERS = new LifecycleListener[0];
+    private static int lifecycleListenersVersion;
 
     protected final Backstack backstack = new Backstack();
     private OnControllerPushedListener onControllerPushedListener;
     private final List<ControllerChangeListener> changeListeners = new ArrayList<>();
+    private LifecycleListener[] lifecycleListeners = NO_LIFECYCLE_LISTENERS;
+    private LifecycleListener[] hierarchyLifecycleListeners = NO_LIFECYCLE_LISTENERS;
+    private int hierarchyLifecycleListenersVersion = -1;
+    private Router hierarchyLifecycleListenersParent;
     final List<Controller> destroyingControllers = new ArrayList<>();
+    private final List<PendingChange> inProgressChanges = new ArrayList<>();
 
     private boolean popsLastView = false;
+    private boolean compactSavedState = false;
+    private String spilledStateToken;
+    private long asyncInflationTimeoutMillis = DEFAULT_ASYNC_INFLATION_TIMEOUT_MILLIS;
+    private RouterTransaction pendingInflationTo;
+    private RouterTransaction pendingInflationFrom;
+    private int maxPrefetchedViews = DEFAULT_MAX_PREFETCHED_VIEWS;
+    private final List<RouterTransaction> prefetchedTransactions = new ArrayList<>();
+    private int maxRetainedViews = DEFAULT_MAX_RETAINED_VIEWS;
+    private final Set<Controller> retainedViewControllers = new LinkedHashSet<>();
+    private int hibernationDepth;
+    private long hibernationIdleTimeoutMillis;
 
     ViewGroup container;
 
@@ -83,7 +116,7 @@ public abstract class Router {
     public boolean handleBack() {
         if (!backstack.isEmpty()) {
             //noinspection ConstantConditions
-            if (backstack.peek().controller.handleBack()) {
+            if (backstack.peek().controller().handleBack()) {
                 return true;
             } else if (popCurrentController()) {
                 return true;
@@ -104,7 +137,7 @@ public abstract class Router {
         if (transaction == null) {
             throw new IllegalStateException("Trying to pop the current controller when there are none on the backstack.");
         }
-        return popController(transaction.controller);
+        return popController(transaction.controller());
     }
 
     /**
@@ -116,20 +149,25 @@ public abstract class Router {
     @UiThread
     public boolean popController(@NonNull Controller controller) {
         RouterTransaction topController = backstack.peek();
-        boolean poppingTopController = topController != null && topController.controller == controller;
+        boolean poppingTopController = topController != null && topController.peekController() == controller;
+
+        // A controller whose view is still being inflated was never shown, so there's nothing to transition away from.
+        boolean poppingPendingInflation = poppingTopController && topController == pendingInflationTo;
+        if (poppingPendingInflation) {
+            clearPendingInflation();
+        }
 
         if (poppingTopController) {
             trackDestroyingController(backstack.pop());
         } else {
-            for (RouterTransaction transaction : backstack) {
-                if (transaction.controller == controller) {
-                    backstack.remove(transaction);
-                    break;
-                }
+            RouterTransaction transaction = backstack.findByInstanceId(controller.getInstanceId());
+            if (transaction != null && transaction.peekController() == controller) {
+                backstack.remove(transaction);
             }
         }
+        onBackstackChanged();
 
-        if (poppingTopController) {
+        if (poppingTopController && !poppingPendingInflation) {
             performControllerChange(backstack.peek(), topController, false);
         }
 
@@ -150,7 +188,18 @@ public abstract class Router {
     public void pushController(@NonNull RouterTransaction transaction) {
         RouterTransaction from = backstack.peek();
         pushToBackstack(transaction);
-        performControllerChange(transaction, from, true);
+
+        Controller controller = transaction.controller();
+        long traceStart = ConductorTrace.beginSection("push", controller);
+        try {
+            if (container != null && controller.getInflatesViewAsync() && controller.getView() == null) {
+                performControllerChangeAfterInflation(transaction, from);
+            } else {
+                performControllerChange(transaction, from, true);
+            }
+        } finally {
+            ConductorTrace.endSection("push", controller, traceStart);
+        }
     }
 
     /**
@@ -172,7 +221,7 @@ public abstract class Router {
             final boolean newHandlerRemovesViews = handler == null || handler.removesFromViewOnPush();
             if (!oldHandlerRemovedViews && newHandlerRemovesViews) {
                 for (RouterTransaction visibleTransaction : getVisibleTransactions(backstack.iterator())) {
-                    performControllerChange(null, visibleTransaction.controller, true, handler);
+                    performControllerChange(null, visibleTransaction.controller(), true, handler);
                 }
             }
         }
@@ -189,16 +238,151 @@ public abstract class Router {
         popsLastView = true;
         List<RouterTransaction> poppedControllers = backstack.popAll();
         trackDestroyingControllers(poppedControllers);
+        onBackstackChanged();
 
         if (popViews && poppedControllers.size() > 0) {
-            performControllerChange(null, poppedControllers.get(0).controller, false, poppedControllers.get(0).popChangeHandler());
+            performControllerChange(null, poppedControllers.get(0).controller(), false, poppedControllers.get(0).popChangeHandler());
         }
     }
 
+    /**
+     * Creates the view of a {@link Controller} that is likely to be pushed soon, so that pushing it later doesn't
+     * have to wait on {@link Controller#onCreateView(android.view.LayoutInflater, ViewGroup)}. The detached view is
+     * kept in a small pool, with the least recently prefetched views being released once the pool is full or the
+     * system is running low on memory. Does nothing if this Router doesn't currently have a container.
+     *
+     * @param transaction The transaction that is expected to be pushed later on
+     */
+    @UiThread
+    public void prefetch(@NonNull RouterTransaction transaction) {
+        Controller controller = transaction.controller();
+        if (container == null || controller.isBeingDestroyed() || backstack.contains(controller)) {
+            return;
+        }
+
+        removeFromPrefetchPool(transaction);
+        prefetchedTransactions.add(transaction);
+
+        if (controller.getView() == null) {
+            setControllerRouter(controller);
+            controller.inflate(container);
+        }
+
+        while (prefetchedTransactions.size() > maxPrefetchedViews) {
+            prefetchedTransactions.remove(0).controller().releaseDetachedView();
+        }
+    }
+
+    /**
+     * Sets the maximum number of views that are kept around by {@link #prefetch(RouterTransaction)}. Defaults to 2.
+     */
+    @NonNull
+    public Router setMaxPrefetchedViews(int maxPrefetchedViews) {
+        this.maxPrefetchedViews = maxPrefetchedViews;
+
+        while (prefetchedTransactions.size() > maxPrefetchedViews) {
+            prefetchedTransactions.remove(0).controller().releaseDetachedView();
+        }
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of detached views kept by {@link Controller}s using
+     * {@link Controller.RetainViewMode#RETAIN_BOUNDED}. The limit is shared by this Router's whole hierarchy, so
+     * calling this on a child Router sets it for its root Router. Defaults to 3.
+     */
+    @NonNull
+    public Router setMaxRetainedViews(int maxRetainedViews) {
+        Router rootRouter = getRootRouter();
+        rootRouter.maxRetainedViews = maxRetainedViews;
+        rootRouter.trimRetainedViews(maxRetainedViews);
+        return this;
+    }
+
+    /**
+     * This should be called when the host receives a call to {@link ComponentCallbacks2#onTrimMemory(int)}, and is
+     * done automatically for Routers attached through {@link Conductor}. Releases views that were created ahead of
+     * time or retained after being detached, but aren't on screen.
+     *
+     * @param level The memory trim level
+     */
+    public final void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            releasePrefetchedViews();
+            trimRetainedViews(0);
+        }
+
+        for (RouterTransaction transaction : backstack) {
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            for (Router childRouter : controller.getChildRouters()) {
+                childRouter.onTrimMemory(level);
+            }
+        }
+
+        hibernateIfNeeded();
+    }
+
+    /**
+     * Sets how long a push waits for a {@link Controller}'s view to be inflated on a background thread before falling
+     * back to inflating it on the main thread. Only applies to Controllers that have opted in through
+     * {@link Controller#setInflatesViewAsync(boolean)}. Defaults to 500ms. If inflation has already started by then,
+     * the push keeps waiting for it without blocking the main thread. Should another change need the view before it's
+     * ready, the main thread waits no longer than the timeout and then inflates the view itself.
+     */
+    @NonNull
+    public Router setAsyncInflationTimeout(long timeoutMillis) {
+        asyncInflationTimeoutMillis = timeoutMillis;
+        return this;
+    }
+
     public int getContainerId() {
         return container != null ? container.getId() : 0;
     }
 
+    /**
+     * If set to true, this Router will save its whole backstack, including child Routers, as a single compact binary
+     * blob instead of nested Bundles. This keeps the saved state of deep hierarchies well below the size of the
+     * regular format. State saved in either format can always be restored. Defaults to false.
+     */
+    @NonNull
+    public Router setCompactSavedStateEnabled(boolean compactSavedState) {
+        this.compactSavedState = compactSavedState;
+        return this;
+    }
+
+    /**
+     * Sets how deep in the backstack a {@link Controller} has to be buried before it is hibernated. Hibernated
+     * Controllers are released and only kept around as a compact copy of their saved state, then recreated from it
+     * once they're needed again. They won't receive {@link Controller#onDestroy()}, they lose any lifecycle listeners
+     * that were added to them and will be a different instance after being recreated, so references to buried
+     * Controllers shouldn't be held onto when this is enabled. A depth of 0 disables this, which is the default.
+     *
+     * @param depth The number of Controllers that are never hibernated, counted from the top of the backstack
+     */
+    @NonNull
+    public Router setHibernationDepth(int depth) {
+        hibernationDepth = depth;
+        hibernateIfNeeded();
+        return this;
+    }
+
+    /**
+     * Sets how long a buried {@link Controller} has to have been detached before it is hibernated. This is checked
+     * whenever the backstack changes, the host Activity is stopped or memory is being trimmed. See
+     * {@link #setHibernationDepth(int)} for what hibernation implies. A timeout of 0 disables this, which is the
+     * default.
+     */
+    @NonNull
+    public Router setHibernationIdleTimeout(long timeoutMillis) {
+        hibernationIdleTimeoutMillis = timeoutMillis;
+        hibernateIfNeeded();
+        return this;
+    }
+
     /**
      * If set to true, this router will handle back presses by performing a change handler on the last controller and view
      * in the stack. This defaults to false so that the developer can either finish its containing Activity or otherwise
@@ -257,11 +441,10 @@ public abstract class Router {
      */
     @UiThread
     public boolean popToTag(@NonNull String tag, @Nullable ControllerChangeHandler changeHandler) {
-        for (RouterTransaction transaction : backstack) {
-            if (tag.equals(transaction.tag())) {
-                popToTransaction(transaction, changeHandler);
-                return true;
-            }
+        RouterTransaction transaction = backstack.findByTag(tag);
+        if (transaction != null) {
+            popToTransaction(transaction, changeHandler);
+            return true;
         }
         return false;
     }
@@ -287,10 +470,31 @@ public abstract class Router {
      */
     @Nullable
     public Controller getControllerWithInstanceId(@NonNull String instanceId) {
+        LifecycleHandler lifecycleHandler = getLifecycleHandler();
+        if (lifecycleHandler != null) {
+            // Registered controllers are resolved with a single lookup. A hit that lives outside of this Router's
+            // hierarchy is authoritative, so there is no need to fall back to walking it.
+            Controller registeredController = lifecycleHandler.getRegisteredController(instanceId);
+            if (registeredController != null) {
+                return isInHierarchy(registeredController) ? registeredController : null;
+            }
+        }
+
+        RouterTransaction directMatch = backstack.findByInstanceId(instanceId);
+        if (directMatch != null) {
+            return directMatch.controller();
+        }
+
         for (RouterTransaction transaction : backstack) {
-            Controller controllerWithId = transaction.controller.findController(instanceId);
-            if (controllerWithId != null) {
-                return controllerWithId;
+            Controller controller = transaction.peekController();
+            if (controller != null) {
+                Controller controllerWithId = controller.findController(instanceId);
+                if (controllerWithId != null) {
+                    return controllerWithId;
+                }
+            } else if (transaction.savedStateContains(instanceId)) {
+                // Only create Controllers that haven't been created yet if they really do contain the one being looked up
+                return transaction.controller().findController(instanceId);
             }
         }
         return null;
@@ -304,12 +508,8 @@ public abstract class Router {
      */
     @Nullable
     public Controller getControllerWithTag(@NonNull String tag) {
-        for (RouterTransaction transaction : backstack) {
-            if (tag.equals(transaction.tag())) {
-                return transaction.controller;
-            }
-        }
-        return null;
+        RouterTransaction transaction = backstack.findByTag(tag);
+        return transaction != null ? transaction.controller() : null;
     }
 
     /**
@@ -332,6 +532,70 @@ public abstract class Router {
         return list;
     }
 
+    /**
+     * Returns how much space the saved state of each {@link Controller} in the backstack would take up, ordered from
+     * root to most recently pushed. Controllers that haven't been created yet are measured from the state they will
+     * be restored from. Useful for tracking down which screens cause TransactionTooLargeExceptions. Measuring calls
+     * the same save callbacks that saving does, but doesn't change the state of any Controller.
+     */
+    @NonNull
+    public List<SavedStateSize> getSavedStateSizes() {
+        Bundle backstackState = new Bundle();
+        backstack.snapshotInstanceState(backstackState);
+
+        List<SavedStateSize> sizes = Backstack.measureSavedState(backstackState);
+        Collections.reverse(sizes);
+        return sizes;
+    }
+
+    /**
+     * Returns the changes this Router has started that haven't completed yet, ordered from oldest to newest. Doesn't
+     * include changes performed by child Routers.
+     */
+    @NonNull
+    public List<InProgressChange> getInProgressChanges() {
+        List<InProgressChange> changes = new ArrayList<>(inProgressChanges.size());
+        for (PendingChange change : inProgressChanges) {
+            changes.add(new InProgressChange(change.to, change.from, change.isPush, change.handler, change.startUptimeMillis));
+        }
+        return changes;
+    }
+
+    /**
+     * Asks the {@link ControllerChangeHandler}s of all changes that are currently in progress to complete immediately,
+     * without any animations or transitions. Handlers that don't support this through
+     * {@link ControllerChangeHandler#completeImmediately()} keep running, and their changes remain in
+     * {@link #getInProgressChanges()} until they complete.
+     */
+    @UiThread
+    public void completeInProgressChanges() {
+        // Completed changes remove themselves from the list
+        for (PendingChange change : new ArrayList<>(inProgressChanges)) {
+            change.handler.completeImmediately();
+        }
+    }
+
+    /**
+     * Aborts all pushes that are currently in progress through {@link ControllerChangeHandler#onAbortPush}. Pops
+     * can't be aborted, so any pops in progress are completed immediately instead. Either way, every change is
+     * completed by the time this returns, with the views left as they would be once it had finished, even if its
+     * handler doesn't support completing immediately.
+     */
+    @UiThread
+    public void cancelInProgressChanges() {
+        RouterTransaction topTransaction = backstack.peek();
+        Controller newTop = topTransaction != null ? topTransaction.peekController() : null;
+
+        // Completed changes remove themselves from the list
+        for (PendingChange change : new ArrayList<>(inProgressChanges)) {
+            if (change.isPush) {
+                change.abort(newTop);
+            } else {
+                change.forceComplete();
+            }
+        }
+    }
+
     /**
      * Sets the backstack, transitioning from the current top controller to the top of the new stack (if different)
      * using the passed {@link ControllerChangeHandler}
@@ -341,47 +605,92 @@ public abstract class Router {
      */
     @UiThread
     public void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler) {
+        long traceStart = ConductorTrace.beginSection("setBackstack", null);
+        try {
+            setBackstack(newBackstack, changeHandler, true);
+        } finally {
+            ConductorTrace.endSection("setBackstack", null, traceStart);
+        }
+    }
+
+    /**
+     * Begins a {@link BackstackTransaction}, which can be used to queue several pushes and pops that will be
+     * committed as a single change to this Router's backstack. The Router's backstack must not be changed by other
+     * means while the transaction is open, as committing it would otherwise undo those changes.
+     */
+    @NonNull @UiThread
+    public BackstackTransaction beginTransaction() {
+        return new BackstackTransaction(this);
+    }
+
+    void setBackstack(@NonNull List<RouterTransaction> newBackstack, @Nullable ControllerChangeHandler changeHandler, boolean isPush) {
         List<RouterTransaction> oldVisibleTransactions = getVisibleTransactions(backstack.iterator());
 
-        removeAllExceptVisibleAndUnowned();
+        // Controllers that were already on the backstack are fully wired up to this router, so only new ones need work.
+        List<RouterTransaction> addedTransactions = new ArrayList<>();
+        for (RouterTransaction transaction : newBackstack) {
+            if (backstack.findByInstanceId(transaction.instanceId()) == null) {
+                addedTransactions.add(transaction);
+            }
+        }
+
+        removeAllExceptVisibleAndUnowned(oldVisibleTransactions);
 
         backstack.setBackstack(newBackstack);
-        for (RouterTransaction transaction : backstack) {
-            transaction.onAttachedToRouter();
+        // Transactions wrapping a Controller that was already on the backstack may still be new themselves
+        for (RouterTransaction transaction : newBackstack) {
+            transaction.onAttachedToRouter(this);
+        }
+        for (RouterTransaction transaction : addedTransactions) {
+            removeFromPrefetchPool(transaction);
         }
+        onBackstackChanged();
 
         if (newBackstack.size() > 0) {
-            List<RouterTransaction> reverseNewBackstack = new ArrayList<>(newBackstack);
-            Collections.reverse(reverseNewBackstack);
-            List<RouterTransaction> newVisibleTransactions = getVisibleTransactions(reverseNewBackstack.iterator());
+            List<RouterTransaction> newVisibleTransactions = getVisibleTransactions(newBackstack);
+
+            // Visible entries shared at the bottom of both stacks stay where they are. Everything above them is
+            // transitioned out or in, so only the part of the visible stack that actually changed gets touched.
+            int unchangedCount = 0;
+            int maxUnchangedCount = Math.min(oldVisibleTransactions.size(), newVisibleTransactions.size());
+            while (unchangedCount < maxUnchangedCount && oldVisibleTransactions.get(unchangedCount).instanceId().equals(newVisibleTransactions.get(unchangedCount).instanceId())) {
+                unchangedCount++;
+            }
 
-            boolean visibleTransactionsChanged = !backstacksAreEqual(newVisibleTransactions, oldVisibleTransactions);
+            boolean visibleTransactionsChanged = unchangedCount != oldVisibleTransactions.size() || unchangedCount != newVisibleTransactions.size();
             if (visibleTransactionsChanged) {
-                Controller rootController = oldVisibleTransactions.size() > 0 ? oldVisibleTransactions.get(0).controller : null;
-                performControllerChange(newVisibleTransactions.get(0).controller, rootController, true, changeHandler);
+                if (unchangedCount == 0) {
+                    Controller rootController = oldVisibleTransactions.size() > 0 ? oldVisibleTransactions.get(0).controller() : null;
+                    performControllerChange(newVisibleTransactions.get(0).controller(), rootController, isPush, changeHandler);
+                }
+
+                int firstChangedIndex = Math.max(unchangedCount, 1);
 
-                for (int i = oldVisibleTransactions.size() - 1; i > 0; i--) {
+                for (int i = oldVisibleTransactions.size() - 1; i >= firstChangedIndex; i--) {
                     RouterTransaction transaction = oldVisibleTransactions.get(i);
-                    ControllerChangeHandler localHandler = changeHandler != null ? changeHandler.copy() : new SimpleSwapChangeHandler();
-                    localHandler.setForceRemoveViewOnPush(true);
-                    performControllerChange(null, transaction.controller, true, localHandler);
+                    performControllerChange(null, transaction.controller(), true, changeHandler, true);
                 }
 
-                for (int i = 1; i < newVisibleTransactions.size(); i++) {
+                for (int i = firstChangedIndex; i < newVisibleTransactions.size(); i++) {
                     RouterTransaction transaction = newVisibleTransactions.get(i);
-                    performControllerChange(transaction.controller, newVisibleTransactions.get(i - 1).controller, true, transaction.pushChangeHandler());
+                    performControllerChange(transaction.controller(), newVisibleTransactions.get(i - 1).controller(), true, transaction.pushChangeHandler());
                 }
             }
 
-            // Ensure all new controllers have a valid router set
-            for (RouterTransaction transaction : newBackstack) {
-                transaction.controller.setRouter(this);
+            // Ensure all new controllers have a valid router set. Ones that haven't been created yet get it once they are.
+            for (RouterTransaction transaction : addedTransactions) {
+                Controller controller = transaction.peekController();
+                if (controller != null) {
+                    controller.setRouter(this);
+                }
             }
+        } else if (!isPush && oldVisibleTransactions.size() > 0) {
+            performControllerChange(null, oldVisibleTransactions.get(oldVisibleTransactions.size() - 1).controller(), false, changeHandler);
         }
 
         if (onControllerPushedListener != null) {
-            for (RouterTransaction transaction : newBackstack) {
-                onControllerPushedListener.onControllerPushed(transaction.controller);
+            for (RouterTransaction transaction : addedTransactions) {
+                onControllerPushedListener.onControllerPushed(transaction);
             }
         }
     }
@@ -413,6 +722,77 @@ public abstract class Router {
         changeListeners.remove(changeListener);
     }
 
+    /**
+     * Adds a listener for the lifecycle events of every {@link Controller} in this Router, including those in
+     * child Routers of its Controllers. This avoids having to add a listener to each Controller individually.
+     *
+     * @param lifecycleListener The listener
+     */
+    public void addLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
+        if (indexOfLifecycleListener(lifecycleListener) < 0) {
+            LifecycleListener[] listeners = new LifecycleListener[lifecycleListeners.length + 1];
+            System.arraycopy(lifecycleListeners, 0, listeners, 0, lifecycleListeners.length);
+            listeners[lifecycleListeners.length] = lifecycleListener;
+            lifecycleListeners = listeners;
+            lifecycleListenersVersion++;
+        }
+    }
+
+    /**
+     * Removes a previously added lifecycle listener
+     *
+     * @param lifecycleListener The listener to be removed
+     */
+    public void removeLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
+        int index = indexOfLifecycleListener(lifecycleListener);
+        if (index >= 0) {
+            if (lifecycleListeners.length == 1) {
+                lifecycleListeners = NO_LIFECYCLE_LISTENERS;
+            } else {
+                LifecycleListener[] listeners = new LifecycleListener[lifecycleListeners.length - 1];
+                System.arraycopy(lifecycleListeners, 0, listeners, 0, index);
+                System.arraycopy(lifecycleListeners, index + 1, listeners, index, listeners.length - index);
+                lifecycleListeners = listeners;
+            }
+            lifecycleListenersVersion++;
+        }
+    }
+
+    private int indexOfLifecycleListener(@NonNull LifecycleListener lifecycleListener) {
+        for (int i = 0; i < lifecycleListeners.length; i++) {
+            if (lifecycleListeners[i].equals(lifecycleListener)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the listeners added to this Router followed by those of its parent Routers, as one flat array. The
+     * array is cached and only rebuilt after a listener has been added or removed anywhere, or this Router has
+     * been moved to a different parent.
+     */
+    @NonNull
+    final LifecycleListener[] getHierarchyLifecycleListeners() {
+        Router parent = getParentRouter();
+        LifecycleListener[] parentListeners = parent != null ? parent.getHierarchyLifecycleListeners() : NO_LIFECYCLE_LISTENERS;
+
+        if (hierarchyLifecycleListenersVersion != lifecycleListenersVersion || hierarchyLifecycleListenersParent != parent) {
+            if (parentListeners.length == 0) {
+                hierarchyLifecycleListeners = lifecycleListeners;
+            } else if (lifecycleListeners.length == 0) {
+                hierarchyLifecycleListeners = parentListeners;
+            } else {
+                hierarchyLifecycleListeners = new LifecycleListener[lifecycleListeners.length + parentListeners.length];
+                System.arraycopy(lifecycleListeners, 0, hierarchyLifecycleListeners, 0, lifecycleListeners.length);
+                System.arraycopy(parentListeners, 0, hierarchyLifecycleListeners, lifecycleListeners.length, parentListeners.length);
+            }
+            hierarchyLifecycleListenersVersion = lifecycleListenersVersion;
+            hierarchyLifecycleListenersParent = parent;
+        }
+        return hierarchyLifecycleListeners;
+    }
+
     /**
      * Attaches this Router's existing backstack to its container if one exists.
      */
@@ -420,10 +800,10 @@ public abstract class Router {
     public void rebindIfNeeded() {
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            RouterTransaction transaction = backstackIterator.next();
+            Controller controller = backstackIterator.next().peekController();
 
-            if (transaction.controller.getNeedsAttach()) {
-                performControllerChange(transaction.controller, null, true, new SimpleSwapChangeHandler(false));
+            if (controller != null && controller.getNeedsAttach()) {
+                performControllerChange(controller, null, true, new SimpleSwapChangeHandler(false));
             }
         }
     }
@@ -437,9 +817,14 @@ public abstract class Router {
 
     public final void onActivityStarted(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.activityStarted(activity);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            controller.activityStarted(activity);
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onActivityStarted(activity);
             }
         }
@@ -447,9 +832,14 @@ public abstract class Router {
 
     public final void onActivityResumed(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.activityResumed(activity);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            controller.activityResumed(activity);
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onActivityResumed(activity);
             }
         }
@@ -457,9 +847,14 @@ public abstract class Router {
 
     public final void onActivityPaused(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.activityPaused(activity);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            controller.activityPaused(activity);
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onActivityPaused(activity);
             }
         }
@@ -467,22 +862,39 @@ public abstract class Router {
 
     public final void onActivityStopped(@NonNull Activity activity) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.activityStopped(activity);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            controller.activityStopped(activity);
+
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onActivityStopped(activity);
             }
         }
+
+        hibernateIfNeeded();
     }
 
     public void onActivityDestroyed(@NonNull Activity activity) {
         prepareForContainerRemoval();
         changeListeners.clear();
+        releasePrefetchedViews();
+
+        if (activity.isFinishing()) {
+            deleteSpilledState(null);
+        }
 
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.activityDestroyed(activity.isChangingConfigurations());
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            controller.activityDestroyed(activity.isChangingConfigurations());
+
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onActivityDestroyed(activity);
             }
         }
@@ -501,10 +913,15 @@ public abstract class Router {
 
     public void prepareForHostDetach() {
         for (RouterTransaction transaction : backstack) {
-            if (ControllerChangeHandler.completePushImmediately(transaction.controller.getInstanceId())) {
-                transaction.controller.setNeedsAttach();
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            if (completePushImmediately(controller.getInstanceId())) {
+                controller.setNeedsAttach();
             }
-            transaction.controller.prepareForHostDetach();
+            controller.prepareForHostDetach();
         }
     }
 
@@ -514,26 +931,192 @@ public abstract class Router {
         Bundle backstackState = new Bundle();
         backstack.saveInstanceState(backstackState);
 
+        // Child Routers are measured as part of their root Router's state
+        if (getRootRouter() == this && Conductor.getSavedStateSizeListener() != null) {
+            checkSavedStateSizes(Backstack.measureSavedState(backstackState));
+        }
+
+        String spilledToken = spillBuriedEntries(backstackState);
+        if (spilledToken != null) {
+            outState.putString(KEY_SPILLED_BACKSTACK_TOKEN, spilledToken);
+        }
+        deleteSpilledState(spilledToken);
+        spilledStateToken = spilledToken;
+
+        byte[] compactBackstackState = null;
+        if (compactSavedState) {
+            try {
+                compactBackstackState = CompactBundleCodec.encode(backstackState);
+            } catch (RuntimeException e) {
+                // Some values, such as ones holding binders, can't be flattened. The regular format still works for those.
+            }
+        }
+
+        if (compactBackstackState != null) {
+            outState.putByteArray(KEY_COMPACT_BACKSTACK, compactBackstackState);
+        } else {
+            outState.putParcelable(KEY_BACKSTACK, backstackState);
+        }
+        outState.putBoolean(KEY_POPS_LAST_VIEW, popsLastView);
+    }
+
+    /**
+     * Fills the passed Bundle with the state {@link #saveInstanceState(Bundle)} would save right now, without preparing
+     * the Controllers for their host being detached, changing their state or moving anything into the
+     * {@link SavedStateStore}.
+     */
+    void snapshotInstanceState(@NonNull Bundle outState) {
+        Bundle backstackState = new Bundle();
+        backstack.snapshotInstanceState(backstackState);
+
         outState.putParcelable(KEY_BACKSTACK, backstackState);
         outState.putBoolean(KEY_POPS_LAST_VIEW, popsLastView);
     }
 
     public void restoreInstanceState(@NonNull Bundle savedInstanceState) {
-        Bundle backstackBundle = savedInstanceState.getParcelable(KEY_BACKSTACK);
+        compactSavedState = savedInstanceState.containsKey(KEY_COMPACT_BACKSTACK);
+        Bundle backstackBundle = getBackstackState(savedInstanceState);
+
+        String spilledToken = savedInstanceState.getString(KEY_SPILLED_BACKSTACK_TOKEN);
+        if (spilledToken != null) {
+            Bundle buriedState = readSpilledEntries(spilledToken);
+            if (buriedState != null) {
+                Backstack.addBuriedEntries(backstackBundle, buriedState);
+                spilledStateToken = spilledToken;
+            }
+        }
+
         backstack.restoreInstanceState(backstackBundle);
         popsLastView = savedInstanceState.getBoolean(KEY_POPS_LAST_VIEW);
 
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            setControllerRouter(backstackIterator.next().controller);
+            backstackIterator.next().onAttachedToRouter(this);
+        }
+
+        // Only the Controllers that will be shown right away are created now. The rest are created once they're needed.
+        for (RouterTransaction transaction : getVisibleTransactions(backstack.iterator())) {
+            transaction.controller();
+        }
+    }
+
+    private static Bundle getBackstackState(@NonNull Bundle savedInstanceState) {
+        byte[] compactBackstackState = savedInstanceState.getByteArray(KEY_COMPACT_BACKSTACK);
+        if (compactBackstackState != null) {
+            return CompactBundleCodec.decode(compactBackstackState, Router.class.getClassLoader());
+        } else {
+            return savedInstanceState.getParcelable(KEY_BACKSTACK);
+        }
+    }
+
+    /**
+     * Measures the Controllers in the backstack of the passed saved state of a Router, ordered from most recently
+     * pushed to root. Entries that were moved into the {@link SavedStateStore} are not measured.
+     */
+    @NonNull
+    static List<SavedStateSize> measureSavedState(@NonNull Bundle savedInstanceState) {
+        Bundle backstackState = getBackstackState(savedInstanceState);
+        return backstackState != null ? Backstack.measureSavedState(backstackState) : new ArrayList<SavedStateSize>();
+    }
+
+    private void checkSavedStateSizes(@NonNull List<SavedStateSize> sizes) {
+        SavedStateSize.OnThresholdExceededListener listener = Conductor.getSavedStateSizeListener();
+        if (listener == null) {
+            return;
+        }
+
+        for (SavedStateSize size : sizes) {
+            if (size.getOwnBytes() > Conductor.getSavedStateSizeWarningBytes()) {
+                listener.onThresholdExceeded(this, size);
+            }
+            checkSavedStateSizes(size.getChildren());
+        }
+    }
+
+    /**
+     * Returns whether or not the passed saved state of a Router contains a Controller with the passed instance id.
+     * Entries that were moved into the {@link SavedStateStore} are not searched.
+     */
+    static boolean savedStateContains(@NonNull Bundle savedInstanceState, @NonNull String instanceId) {
+        Bundle backstackState = getBackstackState(savedInstanceState);
+        return backstackState != null && Backstack.savedStateContains(backstackState, instanceId);
+    }
+
+    static void collectInstanceIds(@NonNull Bundle savedInstanceState, @NonNull Set<String> instanceIds) {
+        Bundle backstackState = getBackstackState(savedInstanceState);
+        if (backstackState != null) {
+            Backstack.collectInstanceIds(backstackState, instanceIds);
+        }
+    }
+
+    /**
+     * Returns whether or not this Router may move parts of its saved state into the {@link SavedStateStore}. Only
+     * Routers that know when their saved state is no longer needed can do so without leaking it.
+     */
+    boolean canSpillSavedState() {
+        return false;
+    }
+
+    /**
+     * Moves the buried entries of the passed backstack state into the {@link SavedStateStore} if the state is too
+     * large to be kept in memory. Returns the token needed to read them back, or null if nothing was moved.
+     */
+    @Nullable
+    private String spillBuriedEntries(@NonNull Bundle backstackState) {
+        SavedStateStore store = Conductor.getSavedStateStore();
+        if (store == null || !canSpillSavedState() || SavedStateSize.parceledSize(backstackState) <= Conductor.getSavedStateSpillThresholdBytes()) {
+            return null;
+        }
+
+        Bundle buriedState = Backstack.removeBuriedEntries(backstackState, getVisibleTransactions(backstack.iterator()).size());
+        if (buriedState == null) {
+            return null;
+        }
+
+        try {
+            return store.write(CompactBundleCodec.encode(buriedState));
+        } catch (IOException | RuntimeException e) {
+            // Keeping everything in the Bundle may still fit, so that's better than losing the entries altogether.
+            Backstack.addBuriedEntries(backstackState, buriedState);
+            return null;
+        }
+    }
+
+    @Nullable
+    private Bundle readSpilledEntries(@NonNull String token) {
+        SavedStateStore store = Conductor.getSavedStateStore();
+        if (store == null) {
+            throw new IllegalStateException("This Router's state was saved with a SavedStateStore, but none is set. Call Conductor.setSavedStateStore() before restoring Routers.");
+        }
+
+        try {
+            return CompactBundleCodec.decode(store.read(token), getClass().getClassLoader());
+        } catch (IOException | IllegalArgumentException e) {
+            // The stored state is gone, most likely because the app's data was cleared. The visible entries can still be restored.
+            return null;
+        }
+    }
+
+    private void deleteSpilledState(@Nullable String tokenToKeep) {
+        SavedStateStore store = Conductor.getSavedStateStore();
+        if (store != null && spilledStateToken != null && !spilledStateToken.equals(tokenToKeep)) {
+            store.delete(spilledStateToken);
+        }
+        if (tokenToKeep == null) {
+            spilledStateToken = null;
         }
     }
 
     public final void onCreateOptionsMenu(@NonNull Menu menu, @NonNull MenuInflater inflater) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.createOptionsMenu(menu, inflater);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            controller.createOptionsMenu(menu, inflater);
+
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onCreateOptionsMenu(menu, inflater);
             }
         }
@@ -541,9 +1124,14 @@ public abstract class Router {
 
     public final void onPrepareOptionsMenu(@NonNull Menu menu) {
         for (RouterTransaction transaction : backstack) {
-            transaction.controller.prepareOptionsMenu(menu);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            controller.prepareOptionsMenu(menu);
+
+            for (Router childRouter : controller.getChildRouters()) {
                 childRouter.onPrepareOptionsMenu(menu);
             }
         }
@@ -551,11 +1139,16 @@ public abstract class Router {
 
     public final boolean onOptionsItemSelected(@NonNull MenuItem item) {
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller.optionsItemSelected(item)) {
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            if (controller.optionsItemSelected(item)) {
                 return true;
             }
 
-            for (Router childRouter : transaction.controller.getChildRouters()) {
+            for (Router childRouter : controller.getChildRouters()) {
                 if (childRouter.onOptionsItemSelected(item)) {
                     return true;
                 }
@@ -568,13 +1161,43 @@ public abstract class Router {
         RouterTransaction topTransaction = backstack.peek();
         List<RouterTransaction> poppedTransactions = backstack.popTo(transaction);
         trackDestroyingControllers(poppedTransactions);
+        onBackstackChanged();
 
         if (poppedTransactions.size() > 0) {
             if (changeHandler == null) {
                 changeHandler = topTransaction.popChangeHandler();
             }
 
-            performControllerChange(backstack.peek().controller, topTransaction.controller, false, changeHandler);
+            performControllerChange(backstack.peek().controller(), topTransaction.controller(), false, changeHandler);
+        }
+    }
+
+    /**
+     * Called whenever entries are added to or removed from this Router's backstack.
+     */
+    void onBackstackChanged() {
+        hibernateIfNeeded();
+    }
+
+    private void hibernateIfNeeded() {
+        if (hibernationDepth <= 0 && hibernationIdleTimeoutMillis <= 0) {
+            return;
+        }
+
+        long now = SystemClock.uptimeMillis();
+        int depth = 0;
+        for (RouterTransaction transaction : backstack) {
+            Controller controller = transaction.peekController();
+            if (controller != null && depth > 0) {
+                boolean tooDeep = hibernationDepth > 0 && depth >= hibernationDepth;
+                boolean idle = hibernationIdleTimeoutMillis > 0 && !controller.isAttached()
+                        && now - controller.getDetachedUptimeMillis() >= hibernationIdleTimeoutMillis;
+
+                if (tooDeep || idle) {
+                    transaction.hibernate(getLifecycleHandler());
+                }
+            }
+            depth++;
         }
     }
 
@@ -586,6 +1209,44 @@ public abstract class Router {
         if (container != null) {
             container.setOnHierarchyChangeListener(null);
         }
+
+        // Handlers that haven't completed by now never will, as their views are going away.
+        inProgressChanges.clear();
+    }
+
+    final void addInProgressChange(@NonNull PendingChange change) {
+        inProgressChanges.add(change);
+    }
+
+    final void removeInProgressChange(@NonNull PendingChange change) {
+        inProgressChanges.remove(change);
+    }
+
+    @Nullable
+    private ControllerChangeHandler removeInProgressPush(@NonNull String instanceId) {
+        for (int i = 0; i < inProgressChanges.size(); i++) {
+            PendingChange change = inProgressChanges.get(i);
+            if (change.isPush && change.to != null && instanceId.equals(change.to.getInstanceId())) {
+                return inProgressChanges.remove(i).handler;
+            }
+        }
+        return null;
+    }
+
+    final boolean completePushImmediately(@NonNull String instanceId) {
+        ControllerChangeHandler handler = removeInProgressPush(instanceId);
+        if (handler != null) {
+            handler.completeImmediately();
+            return true;
+        }
+        return false;
+    }
+
+    final void abortPush(@NonNull String instanceId, @Nullable Controller newTop, @NonNull ControllerChangeHandler newChangeHandler) {
+        ControllerChangeHandler handler = removeInProgressPush(instanceId);
+        if (handler != null) {
+            handler.onAbortPush(newChangeHandler, newTop);
+        }
     }
 
     @NonNull
@@ -594,7 +1255,7 @@ public abstract class Router {
 
         Iterator<RouterTransaction> backstackIterator = backstack.reverseIterator();
         while (backstackIterator.hasNext()) {
-            controllers.add(backstackIterator.next().controller);
+            controllers.add(backstackIterator.next().controller());
         }
 
         return controllers;
@@ -603,8 +1264,13 @@ public abstract class Router {
     @Nullable
     public final Boolean handleRequestedPermission(@NonNull String permission) {
         for (RouterTransaction transaction : backstack) {
-            if (transaction.controller.didRequestPermission(permission)) {
-                return transaction.controller.shouldShowRequestPermissionRationale(permission);
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
+            if (controller.didRequestPermission(permission)) {
+                return controller.shouldShowRequestPermissionRationale(permission);
             }
         }
         return null;
@@ -612,7 +1278,7 @@ public abstract class Router {
 
     private void performControllerChange(@Nullable RouterTransaction to, @Nullable RouterTransaction from, boolean isPush) {
         if (isPush && to != null) {
-            to.onAttachedToRouter();
+            to.onAttachedToRouter(this);
         }
 
         ControllerChangeHandler changeHandler;
@@ -625,13 +1291,19 @@ public abstract class Router {
             changeHandler = null;
         }
 
-        Controller toController = to != null ? to.controller : null;
-        Controller fromController = from != null ? from.controller : null;
+        Controller toController = to != null ? to.controller() : null;
+        Controller fromController = from != null ? from.controller() : null;
 
         performControllerChange(toController, fromController, isPush, changeHandler);
     }
 
     private void performControllerChange(@Nullable final Controller to, @Nullable final Controller from, boolean isPush, @Nullable ControllerChangeHandler changeHandler) {
+        performControllerChange(to, from, isPush, changeHandler, false);
+    }
+
+    private void performControllerChange(@Nullable final Controller to, @Nullable final Controller from, boolean isPush, @Nullable ControllerChangeHandler changeHandler, boolean forceRemoveFromView) {
+        completePendingInflation();
+
         if (to != null) {
             setControllerRouter(to);
         } else if (backstack.size() == 0 && !popsLastView) {
@@ -640,53 +1312,128 @@ public abstract class Router {
             changeHandler = new NoOpControllerChangeHandler();
         }
 
-        ControllerChangeHandler.executeChange(to, from, isPush, container, changeHandler, changeListeners);
+        ControllerChangeHandler.executeChange(to, from, isPush, container, changeHandler, changeListeners, forceRemoveFromView);
+    }
+
+    private void performControllerChangeAfterInflation(@NonNull final RouterTransaction to, @Nullable final RouterTransaction from) {
+        completePendingInflation();
+
+        final Controller controller = to.controller();
+        to.onAttachedToRouter(this);
+        setControllerRouter(controller);
+
+        // Make sure the controller still gets attached if the host goes away before its view is ready.
+        controller.setNeedsAttach();
+
+        pendingInflationTo = to;
+        pendingInflationFrom = from;
+        controller.inflateAsync(container, asyncInflationTimeoutMillis, new Runnable() {
+            @Override
+            public void run() {
+                if (pendingInflationTo == to && container != null) {
+                    clearPendingInflation();
+                    performControllerChange(to, from, true);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs a push that is still waiting on its view to be inflated in the background, so that any change that comes
+     * after it starts from the correct state.
+     */
+    private void completePendingInflation() {
+        RouterTransaction to = pendingInflationTo;
+        RouterTransaction from = pendingInflationFrom;
+        clearPendingInflation();
+
+        if (to != null && to.controller().isInflatingAsync()) {
+            performControllerChange(to, from, true);
+        }
+    }
+
+    private void clearPendingInflation() {
+        pendingInflationTo = null;
+        pendingInflationFrom = null;
     }
 
     private void pushToBackstack(@NonNull RouterTransaction entry) {
         backstack.push(entry);
+        removeFromPrefetchPool(entry);
+        onBackstackChanged();
 
         if (onControllerPushedListener != null) {
-            onControllerPushedListener.onControllerPushed(entry.controller);
+            onControllerPushedListener.onControllerPushed(entry);
         }
     }
 
-    private void trackDestroyingController(@NonNull RouterTransaction transaction) {
-        if (!transaction.controller.isDestroyed()) {
-            destroyingControllers.add(transaction.controller);
+    private void removeFromPrefetchPool(@NonNull RouterTransaction transaction) {
+        for (int i = prefetchedTransactions.size() - 1; i >= 0; i--) {
+            if (prefetchedTransactions.get(i).instanceId().equals(transaction.instanceId())) {
+                prefetchedTransactions.remove(i);
+            }
+        }
+    }
 
-            transaction.controller.addLifecycleListener(new LifecycleListener() {
-                @Override
-                public void postDestroy(@NonNull Controller controller) {
-                    destroyingControllers.remove(controller);
-                }
-            });
+    void addRetainedView(@NonNull Controller controller) {
+        retainedViewControllers.add(controller);
+        trimRetainedViews(maxRetainedViews);
+    }
+
+    void removeRetainedView(@NonNull Controller controller) {
+        retainedViewControllers.remove(controller);
+    }
+
+    private void trimRetainedViews(int maxSize) {
+        while (retainedViewControllers.size() > Math.max(maxSize, 0)) {
+            Controller eldest = retainedViewControllers.iterator().next();
+            retainedViewControllers.remove(eldest);
+            eldest.evictRetainedView();
+        }
+    }
+
+    private void releasePrefetchedViews() {
+        for (RouterTransaction transaction : prefetchedTransactions) {
+            transaction.controller().releaseDetachedView();
+        }
+        prefetchedTransactions.clear();
+    }
+
+    private void trackDestroyingController(@NonNull RouterTransaction transaction) {
+        Controller controller = transaction.peekController();
+        if (controller != null && !controller.isDestroyed()) {
+            // Removed again in onControllerDestroyed
+            destroyingControllers.add(controller);
         }
     }
 
+    void onControllerDestroyed(@NonNull Controller controller) {
+        destroyingControllers.remove(controller);
+    }
+
     private void trackDestroyingControllers(@NonNull List<RouterTransaction> transactions) {
         for (RouterTransaction transaction : transactions) {
             trackDestroyingController(transaction);
         }
     }
 
-    private void removeAllExceptVisibleAndUnowned() {
-        List<View> views = new ArrayList<>();
+    private void removeAllExceptVisibleAndUnowned(@NonNull List<RouterTransaction> visibleTransactions) {
+        Set<View> views = new HashSet<>();
 
-        for (RouterTransaction transaction : getVisibleTransactions(backstack.iterator())) {
-            if (transaction.controller.getView() != null) {
-                views.add(transaction.controller.getView());
+        for (RouterTransaction transaction : visibleTransactions) {
+            Controller controller = transaction.peekController();
+            if (controller != null && controller.getView() != null) {
+                views.add(controller.getView());
             }
         }
 
         for (Router router : getSiblingRouters()) {
             if (router.container == container) {
-                addRouterViewsToList(router, views);
+                addRouterViewsToSet(router, views);
             }
         }
 
-        final int childCount = container.getChildCount();
-        for (int i = 0; i < childCount; i++) {
+        for (int i = container.getChildCount() - 1; i >= 0; i--) {
             final View child = container.getChildAt(i);
             if (!views.contains(child)) {
                 container.removeView(child);
@@ -694,14 +1441,19 @@ public abstract class Router {
         }
     }
 
-    private void addRouterViewsToList(@NonNull Router router, @NonNull List<View> list) {
-        for (Controller controller : router.getControllers()) {
+    private void addRouterViewsToSet(@NonNull Router router, @NonNull Set<View> set) {
+        for (RouterTransaction transaction : router.backstack) {
+            Controller controller = transaction.peekController();
+            if (controller == null) {
+                continue;
+            }
+
             if (controller.getView() != null) {
-                list.add(controller.getView());
+                set.add(controller.getView());
             }
 
             for (Router child : controller.getChildRouters()) {
-                addRouterViewsToList(child, list);
+                addRouterViewsToSet(child, set);
             }
         }
     }
@@ -721,24 +1473,44 @@ public abstract class Router {
         return transactions;
     }
 
-    private boolean backstacksAreEqual(List<RouterTransaction> lhs, List<RouterTransaction> rhs) {
-        if (lhs.size() != rhs.size()) {
-            return false;
-        }
+    private List<RouterTransaction> getVisibleTransactions(@NonNull List<RouterTransaction> backstack) {
+        List<RouterTransaction> transactions = new ArrayList<>();
+        for (int i = backstack.size() - 1; i >= 0; i--) {
+            RouterTransaction transaction = backstack.get(i);
+            transactions.add(transaction);
 
-        for (int i = 0; i < rhs.size(); i++) {
-            if (rhs.get(i).controller() != lhs.get(i).controller()) {
-                return false;
+            if (transaction.pushChangeHandler() == null || transaction.pushChangeHandler().removesFromViewOnPush()) {
+                break;
             }
         }
 
-        return true;
+        Collections.reverse(transactions);
+        return transactions;
     }
 
     void setControllerRouter(@NonNull Controller controller) {
         controller.setRouter(this);
     }
 
+    private boolean isInHierarchy(@NonNull Controller controller) {
+        while (controller != null) {
+            Router router = controller.getRouter();
+            if (router == null) {
+                return false;
+            }
+
+            RouterTransaction transaction = router.backstack.findByInstanceId(controller.getInstanceId());
+            if (transaction == null || transaction.peekController() != controller) {
+                return false;
+            } else if (router == this) {
+                return true;
+            }
+
+            controller = controller.getParentController();
+        }
+        return false;
+    }
+
     abstract void invalidateOptionsMenu();
     abstract void startActivity(@NonNull Intent intent);
     abstract void startActivityForResult(@NonNull String instanceId, @NonNull Intent intent, int requestCode);
@@ -750,7 +1522,14 @@ public abstract class Router {
     @NonNull abstract List<Router> getSiblingRouters();
     @NonNull abstract Router getRootRouter();
 
+    @Nullable
+    Router getParentRouter() {
+        return null;
+    }
+
+    @Nullable abstract LifecycleHandler getLifecycleHandler();
+
     interface OnControllerPushedListener {
-        void onControllerPushed(Controller controller);
+        void onControllerPushed(RouterTransaction transaction);
     }
 }
@@ -4,6 +4,13 @@ import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 
+import com.bluelinelabs.conductor.internal.CompactBundleCodec;
+import com.bluelinelabs.conductor.internal.LifecycleHandler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * Metadata used for adding {@link Controller}s to a {@link Router}.
  */
@@ -14,8 +21,24 @@ public class RouterTransaction {
     private static final String KEY_POP_TRANSITION = "RouterTransaction.popControllerChangeHandler";
     private static final String KEY_TAG = "RouterTransaction.tag";
     private static final String KEY_ATTACHED_TO_ROUTER = "RouterTransaction.attachedToRouter";
+    private static final String KEY_HIBERNATED_STATE = "RouterTransaction.hibernatedState";
+    private static final String KEY_INSTANCE_ID = "RouterTransaction.instanceId";
+    private static final String KEY_HIBERNATED_PUSH_HANDLER = "RouterTransaction.hibernatedPushHandler";
+    private static final String KEY_HIBERNATED_POP_HANDLER = "RouterTransaction.hibernatedPopHandler";
+    private static final String KEY_HIBERNATED_INSTANCE_IDS = "RouterTransaction.hibernatedInstanceIds";
 
-    @NonNull final Controller controller;
+    private Controller controller;
+    // Saved state of a Controller that is only created once it's needed
+    private Bundle controllerState;
+    // Saved state of a Controller that was hibernated, encoded with CompactBundleCodec. Only decoded once the
+    // Controller is recreated, so what's needed before that is kept alongside it.
+    private byte[] hibernatedState;
+    private ControllerChangeHandler hibernatedPushHandler;
+    private ControllerChangeHandler hibernatedPopHandler;
+    // Instance ids of the hibernated Controller and all of its descendants
+    private Set<String> hibernatedInstanceIds;
+    private final String instanceId;
+    private Router router;
     private String tag;
 
     private ControllerChangeHandler pushControllerChangeHandler;
@@ -27,27 +50,182 @@ public class RouterTransaction {
         return new RouterTransaction(controller);
     }
 
+    /**
+     * Creates a transaction for a {@link Controller} that will only be instantiated once it's about to become
+     * visible or is looked up, such as through {@link #controller()}. This is useful for building up deep
+     * backstacks through {@link Router#setBackstack(java.util.List, ControllerChangeHandler)}. The Controller
+     * class must have a constructor that takes a Bundle or a default constructor.
+     *
+     * @param controllerClass The class of the Controller
+     * @param args The arguments that will be passed to the Controller's constructor
+     */
+    @NonNull
+    public static RouterTransaction deferred(@NonNull Class<? extends Controller> controllerClass, @Nullable Bundle args) {
+        Controller.ensureRequiredConstructor(controllerClass);
+        return new RouterTransaction(Controller.createInitialState(controllerClass, args), null);
+    }
+
     private RouterTransaction(@NonNull Controller controller) {
         this.controller = controller;
+        instanceId = controller.getInstanceId();
+    }
+
+    private RouterTransaction(@NonNull Bundle controllerState, @Nullable String tag) {
+        this.controllerState = controllerState;
+        this.tag = tag;
+        instanceId = Controller.getInstanceId(controllerState);
     }
 
     RouterTransaction(@NonNull Bundle bundle) {
-        controller = Controller.newInstance(bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE));
+        hibernatedState = bundle.getByteArray(KEY_HIBERNATED_STATE);
+        if (hibernatedState != null) {
+            //noinspection ConstantConditions
+            instanceId = bundle.getString(KEY_INSTANCE_ID);
+            hibernatedPushHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_HIBERNATED_PUSH_HANDLER));
+            hibernatedPopHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_HIBERNATED_POP_HANDLER));
+            //noinspection ConstantConditions
+            hibernatedInstanceIds = new HashSet<>(bundle.getStringArrayList(KEY_HIBERNATED_INSTANCE_IDS));
+        } else {
+            controllerState = bundle.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+            //noinspection ConstantConditions
+            instanceId = Controller.getInstanceId(controllerState);
+        }
+        tag = bundle.getString(KEY_TAG);
         pushControllerChangeHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_PUSH_TRANSITION));
         popControllerChangeHandler = ControllerChangeHandler.fromBundle(bundle.getBundle(KEY_POP_TRANSITION));
-        tag = bundle.getString(KEY_TAG);
         attachedToRouter = bundle.getBoolean(KEY_ATTACHED_TO_ROUTER);
     }
 
-    void onAttachedToRouter() {
+    void onAttachedToRouter(@NonNull Router router) {
         attachedToRouter = true;
+        this.router = router;
     }
 
+    /**
+     * Returns this transaction's {@link Controller}, creating it first if that hasn't happened yet.
+     */
     @NonNull
     public Controller controller() {
+        if (controller == null) {
+            Bundle state = hibernatedState != null ? CompactBundleCodec.decode(hibernatedState, getClass().getClassLoader()) : controllerState;
+            controller = Controller.newInstance(state);
+            controllerState = null;
+            hibernatedState = null;
+            hibernatedPushHandler = null;
+            hibernatedPopHandler = null;
+            hibernatedInstanceIds = null;
+
+            if (router != null) {
+                router.setControllerRouter(controller);
+            }
+        }
         return controller;
     }
 
+    /**
+     * Returns this transaction's {@link Controller}, or null if it hasn't been created yet.
+     */
+    @Nullable
+    Controller peekController() {
+        return controller;
+    }
+
+    @NonNull
+    String instanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Returns whether or not this transaction's Controller, or any of its descendants, has the passed instance id,
+     * without creating any Controllers. Always false once the Controller has been created.
+     */
+    boolean savedStateContains(@NonNull String instanceId) {
+        if (controller != null) {
+            return false;
+        } else if (hibernatedState != null) {
+            return hibernatedInstanceIds.contains(instanceId);
+        } else {
+            return Controller.savedStateContains(controllerState, instanceId);
+        }
+    }
+
+    @NonNull
+    static SavedStateSize measureSavedState(@NonNull Bundle savedInstanceState) {
+        byte[] hibernatedState = savedInstanceState.getByteArray(KEY_HIBERNATED_STATE);
+        if (hibernatedState != null) {
+            return Controller.measureSavedState(CompactBundleCodec.decode(hibernatedState, RouterTransaction.class.getClassLoader()),
+                    savedInstanceState.getString(KEY_TAG));
+        }
+
+        Bundle controllerState = savedInstanceState.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+        return Controller.measureSavedState(controllerState != null ? controllerState : new Bundle(), savedInstanceState.getString(KEY_TAG));
+    }
+
+    static boolean savedStateContains(@NonNull Bundle savedInstanceState, @NonNull String instanceId) {
+        ArrayList<String> hibernatedInstanceIds = savedInstanceState.getStringArrayList(KEY_HIBERNATED_INSTANCE_IDS);
+        if (hibernatedInstanceIds != null) {
+            return hibernatedInstanceIds.contains(instanceId);
+        }
+
+        Bundle controllerState = savedInstanceState.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+        return controllerState != null && Controller.savedStateContains(controllerState, instanceId);
+    }
+
+    static void collectInstanceIds(@NonNull Bundle savedInstanceState, @NonNull Set<String> instanceIds) {
+        ArrayList<String> hibernatedInstanceIds = savedInstanceState.getStringArrayList(KEY_HIBERNATED_INSTANCE_IDS);
+        if (hibernatedInstanceIds != null) {
+            instanceIds.addAll(hibernatedInstanceIds);
+            return;
+        }
+
+        Bundle controllerState = savedInstanceState.getBundle(KEY_VIEW_CONTROLLER_BUNDLE);
+        if (controllerState != null) {
+            Controller.collectInstanceIds(controllerState, instanceIds);
+        }
+    }
+
+    /**
+     * Replaces this transaction's {@link Controller} with its saved state in compact binary form, so that it can be
+     * garbage collected until it's needed again. Returns whether or not the Controller was hibernated.
+     */
+    boolean hibernate(@Nullable LifecycleHandler lifecycleHandler) {
+        if (controller == null || !controller.canHibernate()) {
+            return false;
+        }
+
+        Bundle savedState = controller.saveInstanceState();
+        byte[] state;
+        try {
+            state = CompactBundleCodec.encode(savedState);
+        } catch (RuntimeException e) {
+            // Some values, such as ones holding binders, can't be flattened
+            return false;
+        }
+
+        if (lifecycleHandler != null) {
+            controller.unregisterHierarchy(lifecycleHandler);
+        }
+        hibernatedPushHandler = controller.getOverriddenPushHandler();
+        hibernatedPopHandler = controller.getOverriddenPopHandler();
+        hibernatedInstanceIds = new HashSet<>();
+        Controller.collectInstanceIds(savedState, hibernatedInstanceIds);
+        controller = null;
+        hibernatedState = state;
+        return true;
+    }
+
+    /**
+     * Destroys this transaction's {@link Controller}. Controllers that were never created only need to release
+     * what was registered for them before their state was saved.
+     */
+    void destroyController() {
+        if (controller != null) {
+            controller.destroy();
+        } else if (router != null) {
+            router.unregisterForActivityResults(instanceId);
+        }
+    }
+
     @Nullable
     public String tag() {
         return tag;
@@ -65,7 +243,14 @@ public class RouterTransaction {
 
     @Nullable
     public ControllerChangeHandler pushChangeHandler() {
-        ControllerChangeHandler handler = controller.getOverriddenPushHandler();
+        ControllerChangeHandler handler;
+        if (controller != null) {
+            handler = controller.getOverriddenPushHandler();
+        } else if (hibernatedState != null) {
+            handler = hibernatedPushHandler;
+        } else {
+            handler = Controller.getOverriddenPushHandler(controllerState);
+        }
         if (handler == null) {
             handler = pushControllerChangeHandler;
         }
@@ -84,7 +269,14 @@ public class RouterTransaction {
 
     @Nullable
     public ControllerChangeHandler popChangeHandler() {
-        ControllerChangeHandler handler = controller.getOverriddenPopHandler();
+        ControllerChangeHandler handler;
+        if (controller != null) {
+            handler = controller.getOverriddenPopHandler();
+        } else if (hibernatedState != null) {
+            handler = hibernatedPopHandler;
+        } else {
+            handler = Controller.getOverriddenPopHandler(controllerState);
+        }
         if (handler == null) {
             handler = popControllerChangeHandler;
         }
@@ -106,9 +298,38 @@ public class RouterTransaction {
      */
     @NonNull
     public Bundle saveInstanceState() {
+        return saveInstanceState(false);
+    }
+
+    /**
+     * Serializes this transaction like {@link #saveInstanceState()}, but without changing the state of its
+     * {@link Controller}.
+     */
+    @NonNull
+    Bundle snapshotInstanceState() {
+        return saveInstanceState(true);
+    }
+
+    @NonNull
+    private Bundle saveInstanceState(boolean snapshot) {
         Bundle bundle = new Bundle();
 
-        bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controller.saveInstanceState());
+        if (controller != null) {
+            bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, snapshot ? controller.snapshotInstanceState() : controller.saveInstanceState());
+        } else if (hibernatedState != null) {
+            // Kept encoded, so saving doesn't have to decode it
+            bundle.putByteArray(KEY_HIBERNATED_STATE, hibernatedState);
+            bundle.putString(KEY_INSTANCE_ID, instanceId);
+            if (hibernatedPushHandler != null) {
+                bundle.putBundle(KEY_HIBERNATED_PUSH_HANDLER, hibernatedPushHandler.toBundle());
+            }
+            if (hibernatedPopHandler != null) {
+                bundle.putBundle(KEY_HIBERNATED_POP_HANDLER, hibernatedPopHandler.toBundle());
+            }
+            bundle.putStringArrayList(KEY_HIBERNATED_INSTANCE_IDS, new ArrayList<>(hibernatedInstanceIds));
+        } else {
+            bundle.putBundle(KEY_VIEW_CONTROLLER_BUNDLE, controllerState);
+        }
 
         if (pushControllerChangeHandler != null) {
             bundle.putBundle(KEY_PUSH_TRANSITION, pushControllerChangeHandler.toBundle());
@@ -0,0 +1,159 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The size a {@link Controller}'s saved state takes up once parceled, broken down into its parts. Sizes are in bytes
+ * and include the overhead of each Bundle. Obtained through {@link Router#getSavedStateSizes()}, or reported through
+ * {@link Conductor#setSavedStateSizeWarning(int, OnThresholdExceededListener)} whenever a Router's state is saved.
+ */
+public final class SavedStateSize {
+
+    private final String controllerClassName;
+    private final String instanceId;
+    private final String tag;
+    private final int totalBytes;
+    private final int argsBytes;
+    private final int viewStateBytes;
+    private final int savedStateBytes;
+    private final int childRoutersBytes;
+    private final List<SavedStateSize> children;
+
+    SavedStateSize(@Nullable String controllerClassName, @Nullable String instanceId, @Nullable String tag, int totalBytes, int argsBytes,
+                   int viewStateBytes, int savedStateBytes, int childRoutersBytes, @NonNull List<SavedStateSize> children) {
+        this.controllerClassName = controllerClassName;
+        this.instanceId = instanceId;
+        this.tag = tag;
+        this.totalBytes = totalBytes;
+        this.argsBytes = argsBytes;
+        this.viewStateBytes = viewStateBytes;
+        this.savedStateBytes = savedStateBytes;
+        this.childRoutersBytes = childRoutersBytes;
+        this.children = Collections.unmodifiableList(children);
+    }
+
+    @Nullable
+    public String getControllerClassName() {
+        return controllerClassName;
+    }
+
+    @Nullable
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Returns the tag of the {@link RouterTransaction} the Controller was pushed with, if any.
+     */
+    @Nullable
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Returns the size of the Controller's entire saved state, including that of its child Routers.
+     */
+    public int getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns the size of the saved state excluding that of the Controller's child Routers.
+     */
+    public int getOwnBytes() {
+        return totalBytes - childRoutersBytes;
+    }
+
+    /**
+     * Returns the size of the arguments the Controller was created with.
+     */
+    public int getArgsBytes() {
+        return argsBytes;
+    }
+
+    /**
+     * Returns the size of the saved view state, which consists of the view hierarchy's state and whatever was
+     * saved in {@link Controller#onSaveViewState(android.view.View, Bundle)}.
+     */
+    public int getViewStateBytes() {
+        return viewStateBytes;
+    }
+
+    /**
+     * Returns the size of the Bundle filled in {@link Controller#onSaveInstanceState(Bundle)}.
+     */
+    public int getSavedStateBytes() {
+        return savedStateBytes;
+    }
+
+    /**
+     * Returns the size of the saved state of all of the Controller's child Routers.
+     */
+    public int getChildRoutersBytes() {
+        return childRoutersBytes;
+    }
+
+    /**
+     * Returns the sizes of the Controllers in the backstacks of all of this Controller's child Routers.
+     */
+    @NonNull
+    public List<SavedStateSize> getChildren() {
+        return children;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        appendTo(builder, 0);
+        return builder.toString();
+    }
+
+    private void appendTo(@NonNull StringBuilder builder, int depth) {
+        for (int i = 0; i < depth; i++) {
+            builder.append("  ");
+        }
+
+        builder.append(controllerClassName).append(" (").append(instanceId).append("): ")
+                .append(totalBytes).append(" bytes [args=").append(argsBytes)
+                .append(", viewState=").append(viewStateBytes)
+                .append(", savedState=").append(savedStateBytes)
+                .append(", childRouters=").append(childRoutersBytes).append("]");
+
+        for (SavedStateSize child : children) {
+            builder.append('\n');
+            child.appendTo(builder, depth + 1);
+        }
+    }
+
+    /**
+     * Returns the number of bytes the passed Bundle takes up once parceled, or 0 if it's null.
+     */
+    static int parceledSize(@Nullable Bundle bundle) {
+        if (bundle == null) {
+            return 0;
+        }
+
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Notified of every Controller whose own saved state, excluding that of its child Routers, exceeds the threshold
+     * set through {@link Conductor#setSavedStateSizeWarning(int, OnThresholdExceededListener)}.
+     */
+    public interface OnThresholdExceededListener {
+        void onThresholdExceeded(@NonNull Router router, @NonNull SavedStateSize size);
+    }
+
+}
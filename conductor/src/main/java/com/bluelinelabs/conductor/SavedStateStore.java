@@ -0,0 +1,43 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import java.io.IOException;
+
+/**
+ * Storage for parts of a {@link Router}'s saved state that are too large to be kept in the Activity's saved
+ * instance state Bundle. Only a token returned by {@link #write(byte[])} is kept in the Bundle itself.
+ * Set through {@link Conductor#setSavedStateStore(SavedStateStore, int)}.
+ * <p>
+ * Routers delete what they wrote once it has been replaced by a newer save or their Activity finishes. Data written
+ * by a process that dies and whose task is never restored is never deleted by Conductor, so implementations should
+ * keep it somewhere the system may clear, such as the cache directory, or expire old entries themselves.
+ */
+public interface SavedStateStore {
+
+    /**
+     * Persists the passed data and returns a token that can later be used to read it back. This is called from
+     * the main thread while the Activity is saving its state, so the data must be stored synchronously.
+     *
+     * @param data The data to store
+     * @return A token identifying the data. Must be safe to use as a file name.
+     */
+    @NonNull
+    String write(@NonNull byte[] data) throws IOException;
+
+    /**
+     * Reads back data that was previously stored through {@link #write(byte[])}.
+     *
+     * @param token The token returned when the data was written
+     */
+    @NonNull
+    byte[] read(@NonNull String token) throws IOException;
+
+    /**
+     * Deletes data that is no longer needed. Unknown tokens should be ignored.
+     *
+     * @param token The token returned when the data was written
+     */
+    void delete(@NonNull String token);
+
+}
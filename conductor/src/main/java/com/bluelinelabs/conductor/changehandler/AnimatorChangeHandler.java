@@ -20,15 +20,19 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
 
     private static final String KEY_DURATION = "AnimatorChangeHandler.duration";
     private static final String KEY_REMOVES_FROM_ON_PUSH = "AnimatorChangeHandler.removesFromViewOnPush";
+    private static final String KEY_USES_HARDWARE_LAYERS = "AnimatorChangeHandler.usesHardwareLayers";
 
     public static final long DEFAULT_ANIMATION_DURATION = -1;
 
     private long animationDuration;
     private boolean removesFromViewOnPush;
+    private boolean usesHardwareLayers = true;
     private boolean canceled;
     private boolean needsImmediateCompletion;
     private boolean completed;
     private Animator animator;
+    private View fromLayerView;
+    private View toLayerView;
 
     public AnimatorChangeHandler() {
         this(DEFAULT_ANIMATION_DURATION, true);
@@ -52,6 +56,7 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         super.saveToBundle(bundle);
         bundle.putLong(KEY_DURATION, animationDuration);
         bundle.putBoolean(KEY_REMOVES_FROM_ON_PUSH, removesFromViewOnPush);
+        bundle.putBoolean(KEY_USES_HARDWARE_LAYERS, usesHardwareLayers);
     }
 
     @Override
@@ -59,6 +64,7 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         super.restoreFromBundle(bundle);
         animationDuration = bundle.getLong(KEY_DURATION);
         removesFromViewOnPush = bundle.getBoolean(KEY_REMOVES_FROM_ON_PUSH);
+        usesHardwareLayers = bundle.getBoolean(KEY_USES_HARDWARE_LAYERS, true);
     }
 
     @Override
@@ -81,6 +87,19 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
         }
     }
 
+    /**
+     * Sets whether or not the views being animated should be rendered into hardware layers while the animation
+     * runs, which makes animating properties such as alpha, translation and scale much cheaper. Should be turned off
+     * for animators that change the content of the views on every frame. Defaults to true.
+     */
+    public void setUsesHardwareLayers(boolean usesHardwareLayers) {
+        this.usesHardwareLayers = usesHardwareLayers;
+    }
+
+    public boolean usesHardwareLayers() {
+        return usesHardwareLayers;
+    }
+
     public long getAnimationDuration() {
         return animationDuration;
     }
@@ -153,6 +172,27 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
             animator.cancel();
             animator = null;
         }
+
+        fromLayerView = clearHardwareLayer(fromLayerView);
+        toLayerView = clearHardwareLayer(toLayerView);
+    }
+
+    @Nullable
+    private View enableHardwareLayer(@NonNull ViewGroup container, @Nullable View view) {
+        // Views that already have a layer are managed by someone else, and software rendered windows can't use one.
+        if (view != null && usesHardwareLayers && container.isHardwareAccelerated() && view.getLayerType() == View.LAYER_TYPE_NONE) {
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            return view;
+        }
+        return null;
+    }
+
+    @Nullable
+    private static View clearHardwareLayer(@Nullable View view) {
+        if (view != null && view.getLayerType() == View.LAYER_TYPE_HARDWARE) {
+            view.setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+        return null;
     }
 
     private void performAnimation(@NonNull final ViewGroup container, @Nullable final View from, @Nullable final View to, final boolean isPush, final boolean toAddedToContainer, @NonNull final ControllerChangeCompletedListener changeListener) {
@@ -193,6 +233,9 @@ public abstract class AnimatorChangeHandler extends ControllerChangeHandler {
             }
         });
 
+        fromLayerView = enableHardwareLayer(container, from);
+        toLayerView = enableHardwareLayer(container, to);
+
         animator.start();
     }
 
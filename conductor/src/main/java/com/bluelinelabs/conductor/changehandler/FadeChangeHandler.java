@@ -51,7 +51,9 @@ public class FadeChangeHandler extends AnimatorChangeHandler {
 
     @Override @NonNull
     public ControllerChangeHandler copy() {
-        return new FadeChangeHandler(getAnimationDuration(), removesFromViewOnPush());
+        FadeChangeHandler copy = new FadeChangeHandler(getAnimationDuration(), removesFromViewOnPush());
+        copy.setUsesHardwareLayers(usesHardwareLayers());
+        return copy;
     }
 
 }
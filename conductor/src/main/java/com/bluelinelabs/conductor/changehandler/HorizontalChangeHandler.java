@@ -61,7 +61,9 @@ public class HorizontalChangeHandler extends AnimatorChangeHandler {
 
     @Override @NonNull
     public ControllerChangeHandler copy() {
-        return new HorizontalChangeHandler(getAnimationDuration(), removesFromViewOnPush());
+        HorizontalChangeHandler copy = new HorizontalChangeHandler(getAnimationDuration(), removesFromViewOnPush());
+        copy.setUsesHardwareLayers(usesHardwareLayers());
+        return copy;
     }
 
 }
@@ -53,7 +53,9 @@ public class VerticalChangeHandler extends AnimatorChangeHandler {
 
     @Override @NonNull
     public ControllerChangeHandler copy() {
-        return new VerticalChangeHandler(getAnimationDuration(), removesFromViewOnPush());
+        VerticalChangeHandler copy = new VerticalChangeHandler(getAnimationDuration(), removesFromViewOnPush());
+        copy.setUsesHardwareLayers(usesHardwareLayers());
+        return copy;
     }
 
 }
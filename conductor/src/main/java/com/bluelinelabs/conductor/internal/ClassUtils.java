@@ -4,29 +4,108 @@ import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import java.lang.reflect.Constructor;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class ClassUtils {
 
+    // Reflection is slow on older devices and the same few classes get looked up over and over again while restoring,
+    // so lookups are cached for the lifetime of the process. Missing constructors are cached as well.
+    private static final Map<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+    private static final Map<ConstructorKey, Object> CONSTRUCTORS = new ConcurrentHashMap<>();
+    private static final Object NO_CONSTRUCTOR = new Object();
+
     @Nullable @SuppressWarnings("unchecked")
     public static <T> Class<? extends T> classForName(@NonNull String className, boolean allowEmptyName) {
         if (allowEmptyName && TextUtils.isEmpty(className)) {
             return null;
         }
 
-        try {
-            return (Class<? extends T>)Class.forName(className);
-        } catch (Exception e) {
-            throw new RuntimeException("An exception occurred while finding class for name " + className + ". " + e.getMessage());
+        Class<?> cls = CLASSES.get(className);
+        if (cls == null) {
+            try {
+                cls = Class.forName(className);
+            } catch (Exception e) {
+                throw new RuntimeException("An exception occurred while finding class for name " + className + ". " + e.getMessage());
+            }
+            CLASSES.put(className, cls);
         }
+        return (Class<? extends T>)cls;
     }
 
     @Nullable @SuppressWarnings("unchecked")
     public static <T> T newInstance(@NonNull String className) {
         try {
             Class<? extends T> cls = classForName(className, true);
-            return cls != null ? cls.newInstance() : null;
+            if (cls == null) {
+                return null;
+            }
+
+            Constructor<? extends T> constructor = getConstructor(cls);
+            return constructor != null ? constructor.newInstance() : cls.newInstance();
         } catch (Exception e) {
             throw new RuntimeException("An exception occurred while creating a new instance of " + className + ". " + e.getMessage());
         }
     }
 
+    @NonNull
+    public static <T> T newInstance(@NonNull Class<T> cls) {
+        try {
+            Constructor<T> constructor = getConstructor(cls);
+            return constructor != null ? constructor.newInstance() : cls.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException("An exception occurred while creating a new instance of " + cls.getName() + ". " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the public constructor of the passed class that takes exactly the passed parameter types, or null
+     * if there is no such constructor.
+     */
+    @Nullable @SuppressWarnings("unchecked")
+    public static <T> Constructor<T> getConstructor(@NonNull Class<T> cls, @NonNull Class<?>... parameterTypes) {
+        ConstructorKey key = new ConstructorKey(cls, parameterTypes);
+
+        Object constructor = CONSTRUCTORS.get(key);
+        if (constructor == null) {
+            try {
+                constructor = cls.getConstructor(parameterTypes);
+            } catch (NoSuchMethodException e) {
+                constructor = NO_CONSTRUCTOR;
+            }
+            CONSTRUCTORS.put(key, constructor);
+        }
+        return constructor != NO_CONSTRUCTOR ? (Constructor<T>)constructor : null;
+    }
+
+    private static class ConstructorKey {
+
+        private final Class<?> cls;
+        private final Class<?>[] parameterTypes;
+
+        ConstructorKey(@NonNull Class<?> cls, @NonNull Class<?>[] parameterTypes) {
+            this.cls = cls;
+            this.parameterTypes = parameterTypes;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof ConstructorKey)) {
+                return false;
+            }
+
+            ConstructorKey other = (ConstructorKey)o;
+            return cls == other.cls && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * cls.hashCode() + Arrays.hashCode(parameterTypes);
+        }
+    }
+
 }
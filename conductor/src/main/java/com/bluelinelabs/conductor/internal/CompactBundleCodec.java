@@ -0,0 +1,462 @@
+package com.bluelinelabs.conductor.internal;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.SparseArray;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Encodes a Bundle tree into a single versioned byte array. Every key, string value and Parcelable class name is
+ * written once into a string table and referenced by index afterwards, which keeps deep Controller hierarchies with
+ * their many repeated keys much smaller than the equivalent nested Bundles. Values without a dedicated encoding are
+ * written through a Parcel.
+ */
+public final class CompactBundleCodec {
+
+    private static final int MAGIC = 0x434e4442;
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_FLOAT = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_STRING = 6;
+    private static final byte TYPE_BUNDLE = 7;
+    private static final byte TYPE_STRING_LIST = 8;
+    private static final byte TYPE_PARCELABLE_LIST = 9;
+    private static final byte TYPE_SPARSE_ARRAY = 10;
+    private static final byte TYPE_PARCELABLE = 11;
+    private static final byte TYPE_INT_ARRAY = 12;
+    private static final byte TYPE_PARCEL_VALUE = 13;
+
+    private static final Map<String, Parcelable.Creator<?>> CREATORS = new ConcurrentHashMap<>();
+
+    private CompactBundleCodec() { }
+
+    /**
+     * Encodes the passed Bundle, including all nested Bundles.
+     *
+     * @throws RuntimeException if one of the values can't be written to a Parcel
+     */
+    @NonNull
+    public static byte[] encode(@NonNull Bundle bundle) {
+        try {
+            Encoder encoder = new Encoder();
+            encoder.writeBundle(bundle);
+            return encoder.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("An exception occurred while encoding a Bundle. " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Decodes a Bundle previously encoded by {@link #encode(Bundle)}
+     *
+     * @param data The encoded Bundle
+     * @param classLoader The ClassLoader used to load Parcelable classes
+     * @throws IllegalArgumentException if the data wasn't written by a compatible version of this codec
+     */
+    @NonNull
+    public static Bundle decode(@NonNull byte[] data, @Nullable ClassLoader classLoader) {
+        try {
+            return new Decoder(data, classLoader).readRoot();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("An exception occurred while decoding a Bundle. " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeVarInt(@NonNull DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(@NonNull DataInputStream in) throws IOException {
+        int value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    private static class Encoder {
+
+        private final ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+        private final DataOutputStream body = new DataOutputStream(bodyBytes);
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndexes = new HashMap<>();
+
+        void writeBundle(@NonNull Bundle bundle) throws IOException {
+            writeVarInt(body, bundle.size());
+            for (String key : bundle.keySet()) {
+                writeString(key);
+                writeValue(bundle.get(key));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void writeValue(@Nullable Object value) throws IOException {
+            if (value == null) {
+                body.writeByte(TYPE_NULL);
+            } else if (value instanceof Boolean) {
+                body.writeByte(TYPE_BOOLEAN);
+                body.writeBoolean((Boolean)value);
+            } else if (value instanceof Integer) {
+                body.writeByte(TYPE_INT);
+                body.writeInt((Integer)value);
+            } else if (value instanceof Long) {
+                body.writeByte(TYPE_LONG);
+                body.writeLong((Long)value);
+            } else if (value instanceof Float) {
+                body.writeByte(TYPE_FLOAT);
+                body.writeFloat((Float)value);
+            } else if (value instanceof Double) {
+                body.writeByte(TYPE_DOUBLE);
+                body.writeDouble((Double)value);
+            } else if (value instanceof String) {
+                body.writeByte(TYPE_STRING);
+                writeString((String)value);
+            } else if (value instanceof Bundle) {
+                body.writeByte(TYPE_BUNDLE);
+                writeBundle((Bundle)value);
+            } else if (value instanceof int[]) {
+                int[] array = (int[])value;
+                body.writeByte(TYPE_INT_ARRAY);
+                writeVarInt(body, array.length);
+                for (int item : array) {
+                    body.writeInt(item);
+                }
+            } else if (value instanceof ArrayList && isListOf((ArrayList<?>)value, String.class)) {
+                ArrayList<String> list = (ArrayList<String>)value;
+                body.writeByte(TYPE_STRING_LIST);
+                writeVarInt(body, list.size());
+                for (String item : list) {
+                    writeString(item);
+                }
+            } else if (value instanceof ArrayList && isListOf((ArrayList<?>)value, Parcelable.class)) {
+                ArrayList<?> list = (ArrayList<?>)value;
+                body.writeByte(TYPE_PARCELABLE_LIST);
+                writeVarInt(body, list.size());
+                for (Object item : list) {
+                    writeValue(item);
+                }
+            } else if (value instanceof SparseArray && isSparseArrayOfParcelables((SparseArray<?>)value)) {
+                SparseArray<?> array = (SparseArray<?>)value;
+                body.writeByte(TYPE_SPARSE_ARRAY);
+                writeVarInt(body, array.size());
+                for (int i = 0; i < array.size(); i++) {
+                    body.writeInt(array.keyAt(i));
+                    writeValue(array.valueAt(i));
+                }
+            } else if (value instanceof Parcelable) {
+                body.writeByte(TYPE_PARCELABLE);
+                writeString(value.getClass().getName());
+
+                Parcel parcel = Parcel.obtain();
+                try {
+                    ((Parcelable)value).writeToParcel(parcel, 0);
+                    writeBytes(parcel.marshall());
+                } finally {
+                    parcel.recycle();
+                }
+            } else {
+                body.writeByte(TYPE_PARCEL_VALUE);
+
+                Parcel parcel = Parcel.obtain();
+                try {
+                    parcel.writeValue(value);
+                    writeBytes(parcel.marshall());
+                } finally {
+                    parcel.recycle();
+                }
+            }
+        }
+
+        private void writeString(@NonNull String string) throws IOException {
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                stringIndexes.put(string, index);
+            }
+            writeVarInt(body, index);
+        }
+
+        private void writeBytes(@NonNull byte[] bytes) throws IOException {
+            writeVarInt(body, bytes.length);
+            body.write(bytes);
+        }
+
+        @NonNull
+        byte[] toByteArray() throws IOException {
+            ByteArrayOutputStream outBytes = new ByteArrayOutputStream(bodyBytes.size() + strings.size() * 16 + 8);
+            DataOutputStream out = new DataOutputStream(outBytes);
+
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+
+            writeVarInt(out, strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes("UTF-8");
+                writeVarInt(out, bytes.length);
+                out.write(bytes);
+            }
+
+            body.flush();
+            bodyBytes.writeTo(out);
+            out.flush();
+            return outBytes.toByteArray();
+        }
+
+        private static boolean isListOf(@NonNull ArrayList<?> list, @NonNull Class<?> cls) {
+            for (Object item : list) {
+                if (!cls.isInstance(item)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isSparseArrayOfParcelables(@NonNull SparseArray<?> array) {
+            for (int i = 0; i < array.size(); i++) {
+                if (!(array.valueAt(i) instanceof Parcelable)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class Decoder {
+
+        private final DataInputStream in;
+        private final ClassLoader classLoader;
+        private String[] strings;
+
+        Decoder(@NonNull byte[] data, @Nullable ClassLoader classLoader) {
+            in = new DataInputStream(new ByteArrayInputStream(data));
+            this.classLoader = classLoader;
+        }
+
+        @NonNull
+        Bundle readRoot() throws IOException {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Data was not encoded by " + CompactBundleCodec.class.getSimpleName());
+            }
+
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported encoding version " + version);
+            }
+
+            strings = new String[readVarInt(in)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarInt(in)];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, "UTF-8");
+            }
+
+            return readBundle();
+        }
+
+        @NonNull
+        private Bundle readBundle() throws IOException {
+            int size = readVarInt(in);
+            Bundle bundle = new Bundle(classLoader);
+            for (int i = 0; i < size; i++) {
+                String key = readString();
+                putValue(bundle, key, readValue(in.readByte()));
+            }
+            return bundle;
+        }
+
+        @Nullable
+        private Object readValue(byte type) throws IOException {
+            switch (type) {
+                case TYPE_NULL:
+                    return null;
+                case TYPE_BOOLEAN:
+                    return in.readBoolean();
+                case TYPE_INT:
+                    return in.readInt();
+                case TYPE_LONG:
+                    return in.readLong();
+                case TYPE_FLOAT:
+                    return in.readFloat();
+                case TYPE_DOUBLE:
+                    return in.readDouble();
+                case TYPE_STRING:
+                    return readString();
+                case TYPE_BUNDLE:
+                    return readBundle();
+                case TYPE_INT_ARRAY:
+                    int[] array = new int[readVarInt(in)];
+                    for (int i = 0; i < array.length; i++) {
+                        array[i] = in.readInt();
+                    }
+                    return array;
+                case TYPE_STRING_LIST:
+                    return readStringList();
+                case TYPE_PARCELABLE_LIST:
+                    return readList();
+                case TYPE_SPARSE_ARRAY:
+                    return readSparseArray();
+                case TYPE_PARCELABLE:
+                    return readParcelable();
+                case TYPE_PARCEL_VALUE:
+                    Parcel parcel = unmarshall(readBytes());
+                    try {
+                        return parcel.readValue(classLoader);
+                    } finally {
+                        parcel.recycle();
+                    }
+                default:
+                    throw new IllegalArgumentException("Unknown value type " + type);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void putValue(@NonNull Bundle bundle, @NonNull String key, @Nullable Object value) {
+            if (value == null) {
+                bundle.putString(key, null);
+            } else if (value instanceof Boolean) {
+                bundle.putBoolean(key, (Boolean)value);
+            } else if (value instanceof Integer) {
+                bundle.putInt(key, (Integer)value);
+            } else if (value instanceof Long) {
+                bundle.putLong(key, (Long)value);
+            } else if (value instanceof Float) {
+                bundle.putFloat(key, (Float)value);
+            } else if (value instanceof Double) {
+                bundle.putDouble(key, (Double)value);
+            } else if (value instanceof String) {
+                bundle.putString(key, (String)value);
+            } else if (value instanceof Bundle) {
+                bundle.putBundle(key, (Bundle)value);
+            } else if (value instanceof int[]) {
+                bundle.putIntArray(key, (int[])value);
+            } else if (value instanceof Parcelable) {
+                bundle.putParcelable(key, (Parcelable)value);
+            } else if (value instanceof Parcelable[]) {
+                bundle.putParcelableArray(key, (Parcelable[])value);
+            } else if (value instanceof SparseArray) {
+                bundle.putSparseParcelableArray(key, (SparseArray<Parcelable>)value);
+            } else if (value instanceof CharSequence) {
+                bundle.putCharSequence(key, (CharSequence)value);
+            } else if (value instanceof Serializable) {
+                // Bundles only cast values on the way out, so lists and arrays can go in through any matching put
+                // method and still be read back through their usual getters.
+                bundle.putSerializable(key, (Serializable)value);
+            } else {
+                throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+            }
+        }
+
+        @NonNull
+        private ArrayList<String> readStringList() throws IOException {
+            int size = readVarInt(in);
+            ArrayList<String> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readString());
+            }
+            return list;
+        }
+
+        @NonNull
+        private ArrayList<Object> readList() throws IOException {
+            int size = readVarInt(in);
+            ArrayList<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readValue(in.readByte()));
+            }
+            return list;
+        }
+
+        @NonNull
+        private SparseArray<Object> readSparseArray() throws IOException {
+            int size = readVarInt(in);
+            SparseArray<Object> array = new SparseArray<>(size);
+            for (int i = 0; i < size; i++) {
+                int key = in.readInt();
+                array.put(key, readValue(in.readByte()));
+            }
+            return array;
+        }
+
+        @NonNull
+        private Object readParcelable() throws IOException {
+            String className = readString();
+            Parcel parcel = unmarshall(readBytes());
+            try {
+                Parcelable.Creator<?> creator = getCreator(className);
+                if (creator instanceof Parcelable.ClassLoaderCreator) {
+                    return ((Parcelable.ClassLoaderCreator<?>)creator).createFromParcel(parcel, classLoader);
+                } else {
+                    return creator.createFromParcel(parcel);
+                }
+            } finally {
+                parcel.recycle();
+            }
+        }
+
+        @NonNull
+        private Parcelable.Creator<?> getCreator(@NonNull String className) {
+            Parcelable.Creator<?> creator = CREATORS.get(className);
+            if (creator == null) {
+                try {
+                    Class<?> cls = Class.forName(className, false, classLoader != null ? classLoader : CompactBundleCodec.class.getClassLoader());
+                    Field field = cls.getField("CREATOR");
+                    creator = (Parcelable.Creator<?>)field.get(null);
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("Unable to find the Parcelable.Creator of " + className + ". " + e.getMessage(), e);
+                }
+                CREATORS.put(className, creator);
+            }
+            return creator;
+        }
+
+        @NonNull
+        private String readString() throws IOException {
+            return strings[readVarInt(in)];
+        }
+
+        @NonNull
+        private byte[] readBytes() throws IOException {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            return bytes;
+        }
+
+        @NonNull
+        private static Parcel unmarshall(@NonNull byte[] bytes) {
+            Parcel parcel = Parcel.obtain();
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel;
+        }
+    }
+
+}
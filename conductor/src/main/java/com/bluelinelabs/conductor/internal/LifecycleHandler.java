@@ -4,6 +4,7 @@ import android.annotation.TargetApi;
 import android.app.Activity;
 import android.app.Application.ActivityLifecycleCallbacks;
 import android.app.Fragment;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Build;
@@ -19,8 +20,10 @@ import android.view.MenuItem;
 import android.view.ViewGroup;
 
 import com.bluelinelabs.conductor.ActivityHostedRouter;
+import com.bluelinelabs.conductor.Controller;
 import com.bluelinelabs.conductor.Router;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -45,6 +48,7 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
     private ArrayList<PendingPermissionRequest> pendingPermissionRequests = new ArrayList<>();
 
     private final Map<Integer, ActivityHostedRouter> routerMap = new HashMap<>();
+    private final Map<String, WeakReference<Controller>> controllerRegistry = new HashMap<>();
 
     public LifecycleHandler() {
         setRetainInstance(true);
@@ -102,6 +106,40 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         return activity;
     }
 
+    /**
+     * Registers a live Controller hosted anywhere under this handler's Routers so that it can later be
+     * resolved by its instance id without walking the Router hierarchy.
+     */
+    public void registerController(@NonNull Controller controller) {
+        WeakReference<Controller> existing = controllerRegistry.get(controller.getInstanceId());
+        if (existing == null || existing.get() != controller) {
+            controllerRegistry.put(controller.getInstanceId(), new WeakReference<>(controller));
+        }
+    }
+
+    public void unregisterController(@NonNull Controller controller) {
+        WeakReference<Controller> existing = controllerRegistry.get(controller.getInstanceId());
+        if (existing != null && existing.get() == controller) {
+            controllerRegistry.remove(controller.getInstanceId());
+        }
+    }
+
+    /**
+     * Returns the registered, non-destroyed Controller with the passed instance id, if one exists.
+     */
+    @Nullable
+    public Controller getRegisteredController(@NonNull String instanceId) {
+        WeakReference<Controller> reference = controllerRegistry.get(instanceId);
+        if (reference != null) {
+            Controller controller = reference.get();
+            if (controller != null && !controller.isDestroyed()) {
+                return controller;
+            }
+            controllerRegistry.remove(instanceId);
+        }
+        return null;
+    }
+
     private static int getRouterHashKey(@NonNull ViewGroup viewGroup) {
         return viewGroup.getId();
     }
@@ -149,6 +187,8 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
             destroyRouters();
             activity = null;
         }
+
+        controllerRegistry.clear();
     }
 
     @SuppressWarnings("deprecation")
@@ -197,6 +237,24 @@ public class LifecycleHandler extends Fragment implements ActivityLifecycleCallb
         }
     }
 
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+
+        for (Router router : routerMap.values()) {
+            router.onTrimMemory(level);
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+
+        for (Router router : routerMap.values()) {
+            router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+    }
+
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
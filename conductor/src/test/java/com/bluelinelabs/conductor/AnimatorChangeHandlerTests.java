@@ -0,0 +1,125 @@
+package com.bluelinelabs.conductor;
+
+import android.content.Context;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeCompletedListener;
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AnimatorChangeHandlerTests {
+
+    private FrameLayout container;
+    private View from;
+    private View to;
+    private CountingCompletedListener changeListener;
+
+    @Before
+    public void setup() {
+        Context context = new ActivityProxy().create(null).start().resume().getActivity();
+        container = new HardwareAcceleratedFrameLayout(context);
+
+        from = new View(context);
+        container.addView(from);
+
+        // Views that haven't been laid out yet wait for a pre-draw before animating
+        to = new View(context);
+        to.layout(0, 0, 100, 100);
+
+        changeListener = new CountingCompletedListener();
+    }
+
+    @Test
+    public void testLayersAreUsedWhileAnimating() {
+        FadeChangeHandler handler = new FadeChangeHandler();
+        handler.performChange(container, from, to, true, changeListener);
+
+        assertEquals(View.LAYER_TYPE_HARDWARE, from.getLayerType());
+        assertEquals(View.LAYER_TYPE_HARDWARE, to.getLayerType());
+
+        handler.completeImmediately();
+
+        assertEquals(1, changeListener.completedCalls);
+        assertEquals(View.LAYER_TYPE_NONE, from.getLayerType());
+        assertEquals(View.LAYER_TYPE_NONE, to.getLayerType());
+    }
+
+    @Test
+    public void testLayersAreClearedOnAbort() {
+        FadeChangeHandler handler = new FadeChangeHandler();
+        handler.performChange(container, from, to, true, changeListener);
+        assertEquals(View.LAYER_TYPE_HARDWARE, to.getLayerType());
+
+        handler.onAbortPush(new FadeChangeHandler(), null);
+
+        assertEquals(1, changeListener.completedCalls);
+        assertEquals(View.LAYER_TYPE_NONE, from.getLayerType());
+        assertEquals(View.LAYER_TYPE_NONE, to.getLayerType());
+    }
+
+    @Test
+    public void testExistingLayersAreLeftAlone() {
+        from.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        to.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+
+        FadeChangeHandler handler = new FadeChangeHandler();
+        handler.performChange(container, from, to, true, changeListener);
+
+        assertEquals(View.LAYER_TYPE_HARDWARE, from.getLayerType());
+        assertEquals(View.LAYER_TYPE_SOFTWARE, to.getLayerType());
+
+        handler.completeImmediately();
+
+        assertEquals(View.LAYER_TYPE_HARDWARE, from.getLayerType());
+        assertEquals(View.LAYER_TYPE_SOFTWARE, to.getLayerType());
+    }
+
+    @Test
+    public void testLayersCanBeDisabled() {
+        FadeChangeHandler handler = new FadeChangeHandler();
+        handler.setUsesHardwareLayers(false);
+        handler.performChange(container, from, to, true, changeListener);
+
+        assertEquals(View.LAYER_TYPE_NONE, from.getLayerType());
+        assertEquals(View.LAYER_TYPE_NONE, to.getLayerType());
+
+        handler.completeImmediately();
+        assertTrue(changeListener.completedCalls > 0);
+    }
+
+    // Hardware layers are only used in hardware accelerated windows, which Robolectric doesn't have
+    private static class HardwareAcceleratedFrameLayout extends FrameLayout {
+
+        HardwareAcceleratedFrameLayout(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isHardwareAccelerated() {
+            return true;
+        }
+    }
+
+    private static class CountingCompletedListener implements ControllerChangeCompletedListener {
+
+        int completedCalls;
+
+        @Override
+        public void onChangeCompleted() {
+            completedCalls++;
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class AsyncInflationTests {
+
+    private static final long TIMEOUT = 1000;
+
+    private Router router;
+    private final List<Runnable> pendingInflations = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        AsyncInflationRequest.setExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                pendingInflations.add(command);
+            }
+        });
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        router.setAsyncInflationTimeout(TIMEOUT);
+        router.setRoot(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+    }
+
+    @After
+    public void teardown() {
+        AsyncInflationRequest.setExecutor(null);
+    }
+
+    @Test
+    public void testPushWaitsForInflation() {
+        Controller root = router.getBackstack().get(0).controller();
+        TestController controller = new TestController();
+        controller.setInflatesViewAsync(true);
+
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(2, router.getBackstackSize());
+        assertNull(controller.getView());
+        assertFalse(controller.isAttached());
+        assertTrue(root.isAttached());
+        assertEquals(1, pendingInflations.size());
+
+        runPendingInflations();
+
+        assertNotNull(controller.getView());
+        assertTrue(controller.isAttached());
+        assertFalse(root.isAttached());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testTimeoutFallsBackToSynchronousInflation() {
+        TestController controller = new TestController();
+        controller.setInflatesViewAsync(true);
+
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertFalse(controller.isAttached());
+
+        Robolectric.getForegroundThreadScheduler().advanceBy(TIMEOUT);
+
+        assertTrue(controller.isAttached());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+
+        // The background inflation was claimed by the main thread and must not create a second view.
+        runPendingInflations();
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertTrue(controller.isAttached());
+    }
+
+    @Test
+    public void testTimeoutDoesNotBlockOnStartedInflation() throws InterruptedException {
+        final BlockingController controller = new BlockingController();
+        controller.setInflatesViewAsync(true);
+
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Thread inflationThread = new Thread(pendingInflations.remove(0));
+        inflationThread.start();
+        assertTrue(controller.inflationStarted.await(TIMEOUT, TimeUnit.MILLISECONDS));
+
+        // The timeout passes while the view is still being built. The push keeps waiting instead of the main thread.
+        Robolectric.getForegroundThreadScheduler().advanceBy(TIMEOUT);
+        assertFalse(controller.isAttached());
+
+        controller.finishInflation.countDown();
+        inflationThread.join();
+        Robolectric.flushForegroundThreadScheduler();
+
+        assertTrue(controller.isAttached());
+        assertEquals(1, controller.currentCallState.createViewCalls);
+    }
+
+    @Test
+    public void testPopBeforeInflationFinishes() {
+        Controller root = router.getBackstack().get(0).controller();
+        TestController controller = new TestController();
+        controller.setInflatesViewAsync(true);
+
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+
+        runPendingInflations();
+
+        assertEquals(1, router.getBackstackSize());
+        assertEquals(0, controller.currentCallState.createViewCalls);
+        assertFalse(controller.isAttached());
+        assertTrue(controller.isDestroyed());
+        assertTrue(root.isAttached());
+    }
+
+    @Test
+    public void testPushOverPendingInflation() {
+        TestController asyncController = new TestController();
+        asyncController.setInflatesViewAsync(true);
+        TestController topController = new TestController();
+
+        router.pushController(RouterTransaction.with(asyncController)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(topController)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        runPendingInflations();
+
+        assertTrue(topController.isAttached());
+        assertFalse(asyncController.isAttached());
+
+        router.popCurrentController();
+
+        assertTrue(asyncController.isAttached());
+        assertEquals(1, asyncController.currentCallState.createViewCalls);
+    }
+
+    public static class BlockingController extends TestController {
+        final CountDownLatch inflationStarted = new CountDownLatch(1);
+        final CountDownLatch finishInflation = new CountDownLatch(1);
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            inflationStarted.countDown();
+            try {
+                finishInflation.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return super.onCreateView(inflater, container);
+        }
+    }
+
+    private void runPendingInflations() {
+        List<Runnable> inflations = new ArrayList<>(pendingInflations);
+        pendingInflations.clear();
+        for (Runnable inflation : inflations) {
+            inflation.run();
+        }
+    }
+
+}
@@ -1,11 +1,15 @@
 package com.bluelinelabs.conductor;
 
+import com.bluelinelabs.conductor.util.ListUtils;
 import com.bluelinelabs.conductor.util.TestController;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class BackstackTests {
 
@@ -66,4 +70,75 @@ public class BackstackTests {
         assertEquals(1, backstack.size());
         assertEquals(transaction1, backstack.peek());
     }
+
+    @Test
+    public void testIndexesFollowPushAndPop() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController()).tag("1");
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController()).tag("2");
+
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+
+        assertEquals(transaction1, backstack.findByInstanceId(transaction1.controller().getInstanceId()));
+        assertEquals(transaction2, backstack.findByInstanceId(transaction2.controller().getInstanceId()));
+        assertEquals(transaction1, backstack.findByTag("1"));
+        assertEquals(transaction2, backstack.findByTag("2"));
+
+        backstack.pop();
+
+        assertNull(backstack.findByInstanceId(transaction2.controller().getInstanceId()));
+        assertNull(backstack.findByTag("2"));
+        assertTrue(backstack.contains(transaction1));
+        assertFalse(backstack.contains(transaction2));
+    }
+
+    @Test
+    public void testIndexesFollowPopToAndRemove() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController()).tag("1");
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController()).tag("2");
+        RouterTransaction transaction3 = RouterTransaction.with(new TestController()).tag("3");
+
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+        backstack.push(transaction3);
+
+        backstack.remove(transaction2);
+        assertNull(backstack.findByTag("2"));
+        assertEquals(transaction3, backstack.findByTag("3"));
+
+        backstack.popTo(transaction1);
+        assertNull(backstack.findByTag("3"));
+        assertNull(backstack.findByInstanceId(transaction3.controller().getInstanceId()));
+        assertEquals(transaction1, backstack.findByTag("1"));
+    }
+
+    @Test
+    public void testIndexesFollowSetBackstack() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController()).tag("1");
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController()).tag("2");
+        RouterTransaction transaction3 = RouterTransaction.with(new TestController()).tag("3");
+
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+
+        backstack.setBackstack(ListUtils.listOf(transaction1, transaction3));
+
+        assertEquals(transaction1, backstack.findByTag("1"));
+        assertNull(backstack.findByTag("2"));
+        assertEquals(transaction3, backstack.findByTag("3"));
+        assertEquals(transaction3, backstack.peek());
+    }
+
+    @Test
+    public void testDuplicateTagsResolveToTopmost() {
+        RouterTransaction transaction1 = RouterTransaction.with(new TestController()).tag("tag");
+        RouterTransaction transaction2 = RouterTransaction.with(new TestController()).tag("tag");
+
+        backstack.push(transaction1);
+        backstack.push(transaction2);
+        assertEquals(transaction2, backstack.findByTag("tag"));
+
+        backstack.pop();
+        assertEquals(transaction1, backstack.findByTag("tag"));
+    }
 }
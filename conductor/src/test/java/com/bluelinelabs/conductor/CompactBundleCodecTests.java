@@ -0,0 +1,115 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.os.Parcelable;
+import android.util.SparseArray;
+
+import com.bluelinelabs.conductor.internal.CompactBundleCodec;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.ListUtils;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class CompactBundleCodecTests {
+
+    @Test
+    public void testRoundTrip() {
+        Bundle nested = new Bundle();
+        nested.putString("key", "nested");
+
+        SparseArray<Parcelable> sparseArray = new SparseArray<>();
+        sparseArray.put(42, nested);
+
+        Bundle bundle = new Bundle();
+        bundle.putBoolean("boolean", true);
+        bundle.putInt("int", 7);
+        bundle.putLong("long", 1234567890123L);
+        bundle.putDouble("double", 1.5);
+        bundle.putString("string", "value");
+        bundle.putString("null", null);
+        bundle.putBundle("bundle", nested);
+        bundle.putIntArray("intArray", new int[] { 1, 2, 3 });
+        bundle.putStringArrayList("stringList", new ArrayList<>(ListUtils.listOf("a", "b", "a")));
+        bundle.putParcelableArrayList("bundleList", new ArrayList<Parcelable>(ListUtils.listOf(nested, nested)));
+        bundle.putSparseParcelableArray("sparseArray", sparseArray);
+        bundle.putLongArray("longArray", new long[] { 4, 5 });
+
+        Bundle decoded = CompactBundleCodec.decode(CompactBundleCodec.encode(bundle), getClass().getClassLoader());
+
+        assertEquals(bundle.size(), decoded.size());
+        assertTrue(decoded.getBoolean("boolean"));
+        assertEquals(7, decoded.getInt("int"));
+        assertEquals(1234567890123L, decoded.getLong("long"));
+        assertEquals(1.5, decoded.getDouble("double"), 0);
+        assertEquals("value", decoded.getString("string"));
+        assertTrue(decoded.containsKey("null"));
+        assertNull(decoded.getString("null"));
+        assertEquals("nested", decoded.getBundle("bundle").getString("key"));
+        assertArrayEquals(new int[] { 1, 2, 3 }, decoded.getIntArray("intArray"));
+        assertEquals(ListUtils.listOf("a", "b", "a"), decoded.getStringArrayList("stringList"));
+        assertEquals(2, decoded.getParcelableArrayList("bundleList").size());
+        assertEquals("nested", ((Bundle)decoded.getParcelableArrayList("bundleList").get(1)).getString("key"));
+        assertEquals("nested", ((Bundle)decoded.getSparseParcelableArray("sparseArray").get(42)).getString("key"));
+        assertArrayEquals(new long[] { 4, 5 }, decoded.getLongArray("longArray"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsForeignData() {
+        CompactBundleCodec.decode(new byte[] { 1, 2, 3, 4, 5 }, null);
+    }
+
+    @Test
+    public void testRouterStateRoundTrip() {
+        Router router = createRouter();
+        router.setCompactSavedStateEnabled(true);
+
+        List<RouterTransaction> backstack = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            backstack.add(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler())
+                    .tag(String.valueOf(i)));
+        }
+        router.setBackstack(backstack, MockChangeHandler.defaultHandler());
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        assertNotNull(savedState.getByteArray("Router.backstack.compact"));
+        assertFalse(savedState.containsKey("Router.backstack"));
+
+        Router restoredRouter = createRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        List<RouterTransaction> restoredBackstack = restoredRouter.getBackstack();
+        assertEquals(3, restoredBackstack.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), restoredBackstack.get(i).tag());
+            assertEquals(backstack.get(i).controller().getInstanceId(), restoredBackstack.get(i).controller().getInstanceId());
+            assertTrue(restoredBackstack.get(i).pushChangeHandler() instanceof MockChangeHandler);
+        }
+    }
+
+    private Router createRouter() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        return Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.ConductorMetrics.Histogram;
+import com.bluelinelabs.conductor.ConductorMetrics.Metric;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ConductorMetricsTests {
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        ConductorMetrics.reset();
+        ConductorMetrics.setEnabled(true);
+    }
+
+    @After
+    public void teardown() {
+        ConductorMetrics.setEnabled(false);
+        ConductorMetrics.reset();
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        Histogram histogram = ConductorMetrics.getHistogram(Metric.CHANGE);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(100000, histogram.getMaxNanos());
+        assertEquals(50500, histogram.getMeanNanos());
+
+        long median = histogram.getPercentileNanos(50);
+        assertTrue(median >= 50000 && median <= 50000 * 5 / 4);
+        assertEquals(100000, histogram.getPercentileNanos(100));
+
+        for (int i = 1; i < histogram.getBucketCount(); i++) {
+            assertTrue(histogram.getBucketUpperBoundNanos(i) > histogram.getBucketUpperBoundNanos(i - 1));
+            assertEquals(i, Histogram.bucketIndex(histogram.getBucketUpperBoundNanos(i)));
+        }
+        assertEquals(Long.MAX_VALUE, histogram.getBucketUpperBoundNanos(histogram.getBucketCount() - 1));
+    }
+
+    @Test
+    public void testChangesAreRecorded() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(2, ConductorMetrics.getHistogram(Metric.INFLATE).getCount());
+        assertEquals(2, ConductorMetrics.getHistogram(Metric.CHANGE).getCount());
+
+        router.saveInstanceState(new Bundle());
+        assertEquals(2, ConductorMetrics.getHistogram(Metric.SAVE_INSTANCE_STATE).getCount());
+    }
+
+    @Test
+    public void testCachedSavesAreRecorded() {
+        Controller buriedController = new TestController();
+        buriedController.setCachesSavedState(true);
+        router.setRoot(RouterTransaction.with(buriedController).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        router.saveInstanceState(new Bundle());
+        // The buried Controller's state comes from its cache this time
+        router.saveInstanceState(new Bundle());
+
+        assertEquals(4, ConductorMetrics.getHistogram(Metric.SAVE_INSTANCE_STATE).getCount());
+    }
+
+    @Test
+    public void testNothingIsRecordedWhileDisabled() {
+        ConductorMetrics.setEnabled(false);
+
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(0, ConductorMetrics.getHistogram(Metric.INFLATE).getCount());
+        assertEquals(0, ConductorMetrics.getHistogram(Metric.CHANGE).getCount());
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ConductorTraceTests {
+
+    private Router router;
+    private NavigationTraceRecorder recorder;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        recorder = new NavigationTraceRecorder();
+        ConductorTrace.setRecorder(recorder);
+    }
+
+    @After
+    public void teardown() {
+        ConductorTrace.setRecorder(null);
+    }
+
+    @Test
+    public void testNavigationIsRecorded() throws IOException {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.saveInstanceState(new Bundle());
+
+        StringWriter writer = new StringWriter();
+        recorder.writeTo(writer);
+        String trace = writer.toString();
+
+        assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace.contains("\"name\":\"push\",\"cat\":\"conductor\",\"ph\":\"X\""));
+        assertTrue(trace.contains("\"name\":\"push\",\"cat\":\"conductor\",\"ph\":\"b\""));
+        assertTrue(trace.contains("\"name\":\"push\",\"cat\":\"conductor\",\"ph\":\"e\""));
+        assertTrue(trace.contains("\"name\":\"inflate\""));
+        assertTrue(trace.contains("\"name\":\"attach\""));
+        assertTrue(trace.contains("\"name\":\"detach\""));
+        assertTrue(trace.contains("\"name\":\"executeChange\""));
+        assertTrue(trace.contains("\"name\":\"saveInstanceState\""));
+        assertTrue(trace.contains("\"controller\":\"" + TestController.class.getName() + "\""));
+    }
+
+    @Test
+    public void testOnlyMostRecentEventsAreKept() throws IOException {
+        NavigationTraceRecorder smallRecorder = new NavigationTraceRecorder(4);
+        ConductorTrace.setRecorder(smallRecorder);
+
+        for (int i = 0; i < 5; i++) {
+            router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        }
+
+        assertEquals(4, smallRecorder.getEventCount());
+
+        smallRecorder.clear();
+        assertEquals(0, smallRecorder.getEventCount());
+
+        StringWriter writer = new StringWriter();
+        smallRecorder.writeTo(writer);
+        assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n]}\n", writer.toString());
+    }
+
+    @Test
+    public void testSectionNames() {
+        assertEquals("Conductor.push TestController", ConductorTrace.sectionName("push", new TestController()));
+        assertEquals("Conductor.setBackstack", ConductorTrace.sectionName("setBackstack", null));
+
+        StringBuilder longSection = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            longSection.append('a');
+        }
+        assertEquals(127, ConductorTrace.sectionName(longSection.toString(), null).length());
+    }
+
+}
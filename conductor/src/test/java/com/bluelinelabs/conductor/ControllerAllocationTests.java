@@ -0,0 +1,168 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.bluelinelabs.conductor.Controller.LifecycleListener;
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerAllocationTests {
+
+    private static final int WARMUP_ITERATIONS = 10000;
+    private static final int MEASURED_ITERATIONS = 1000;
+    // Room for the single PendingChange every change needs, which is comfortably below 128 bytes on common JVMs
+    private static final int MAX_BYTES_PER_CHANGE = 128;
+
+    @Test
+    public void testListenerDispatchDoesNotAllocate() {
+        Object threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        Controller controller = new PlainController();
+        for (int i = 0; i < 3; i++) {
+            controller.addLifecycleListener(new LifecycleListener() { });
+        }
+        ControllerChangeHandler changeHandler = new SimpleSwapChangeHandler();
+
+        runTransitions(controller, changeHandler, WARMUP_ITERATIONS);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        runTransitions(controller, changeHandler, MEASURED_ITERATIONS);
+        long after = allocationBean.getThreadAllocatedBytes(threadId);
+
+        // Reading the counter itself allocates a few bytes on some JVMs, so measure that overhead and subtract it.
+        long overheadBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        long overheadAfter = allocationBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(0, Math.max(0, (after - before) - (overheadAfter - overheadBefore)));
+    }
+
+    @Test
+    public void testChangePipelineStaysWithinAllocationBudget() {
+        Object threadBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+        Assume.assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        Controller first = new PlainController();
+        Controller second = new PlainController();
+        ControllerChangeHandler changeHandler = new ImmediateChangeHandler();
+        router.setRoot(RouterTransaction.with(first).pushChangeHandler(changeHandler));
+        router.pushController(RouterTransaction.with(second).pushChangeHandler(changeHandler));
+
+        List<ControllerChangeListener> listeners = new ArrayList<>();
+        runChanges(first, second, activityProxy.getView(), changeHandler, listeners, WARMUP_ITERATIONS);
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        runChanges(first, second, activityProxy.getView(), changeHandler, listeners, MEASURED_ITERATIONS);
+        long after = allocationBean.getThreadAllocatedBytes(threadId);
+
+        long overheadBefore = allocationBean.getThreadAllocatedBytes(threadId);
+        long overheadAfter = allocationBean.getThreadAllocatedBytes(threadId);
+
+        long allocated = (after - before) - (overheadAfter - overheadBefore);
+        assertTrue("Allocated " + allocated + " bytes", allocated <= 2L * MEASURED_ITERATIONS * MAX_BYTES_PER_CHANGE);
+        assertTrue(router.getInProgressChanges().isEmpty());
+    }
+
+    @Test
+    public void testListenerMutationDuringDispatch() {
+        final Controller controller = new PlainController();
+        final CountingListener secondListener = new CountingListener();
+
+        controller.addLifecycleListener(new LifecycleListener() {
+            @Override
+            public void onChangeStart(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
+                controller.removeLifecycleListener(this);
+                controller.removeLifecycleListener(secondListener);
+            }
+        });
+        controller.addLifecycleListener(secondListener);
+
+        controller.changeStarted(new SimpleSwapChangeHandler(), ControllerChangeType.PUSH_ENTER);
+        assertEquals(1, secondListener.changeStartCalls);
+
+        controller.changeStarted(new SimpleSwapChangeHandler(), ControllerChangeType.PUSH_ENTER);
+        assertEquals(1, secondListener.changeStartCalls);
+    }
+
+    private void runTransitions(Controller controller, ControllerChangeHandler changeHandler, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            controller.changeStarted(changeHandler, ControllerChangeType.PUSH_ENTER);
+            controller.changeEnded(changeHandler, ControllerChangeType.PUSH_ENTER);
+            controller.changeStarted(changeHandler, ControllerChangeType.POP_EXIT);
+            controller.changeEnded(changeHandler, ControllerChangeType.POP_EXIT);
+        }
+    }
+
+    private void runChanges(Controller first, Controller second, ViewGroup container, ControllerChangeHandler changeHandler, List<ControllerChangeListener> listeners, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            ControllerChangeHandler.executeChange(first, second, false, container, changeHandler, listeners);
+            ControllerChangeHandler.executeChange(second, first, true, container, changeHandler, listeners);
+        }
+    }
+
+    public static class PlainController extends Controller {
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            return new FrameLayout(inflater.getContext());
+        }
+    }
+
+    // Leaves the views alone, so that only Conductor's own work is measured.
+    public static class ImmediateChangeHandler extends ControllerChangeHandler {
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            changeListener.onChangeCompleted();
+        }
+
+        @Override
+        public boolean isReusable() {
+            return true;
+        }
+    }
+
+    private static class CountingListener extends LifecycleListener {
+
+        int changeStartCalls;
+
+        @Override
+        public void onChangeStart(@NonNull Controller controller, @NonNull ControllerChangeHandler changeHandler, @NonNull ControllerChangeType changeType) {
+            changeStartCalls++;
+        }
+    }
+
+}
@@ -7,6 +7,8 @@ import com.bluelinelabs.conductor.util.TestController;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class ControllerChangeHandlerTests {
 
@@ -36,4 +38,18 @@ public class ControllerChangeHandlerTests {
         assertEquals(fadeChangeHandler.removesFromViewOnPush(), restoredFadeCast.removesFromViewOnPush());
     }
 
+    @Test
+    public void testHardwareLayerSettingIsKept() {
+        FadeChangeHandler fadeChangeHandler = new FadeChangeHandler();
+        assertTrue(fadeChangeHandler.usesHardwareLayers());
+
+        fadeChangeHandler.setUsesHardwareLayers(false);
+
+        RouterTransaction transaction = RouterTransaction.with(new TestController()).pushChangeHandler(fadeChangeHandler);
+        RouterTransaction restoredTransaction = new RouterTransaction(transaction.saveInstanceState());
+
+        assertFalse(((FadeChangeHandler)restoredTransaction.pushChangeHandler()).usesHardwareLayers());
+        assertFalse(((FadeChangeHandler)fadeChangeHandler.copy()).usesHardwareLayers());
+    }
+
 }
@@ -0,0 +1,60 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerFactoryTests {
+
+    @After
+    public void teardown() {
+        Conductor.unregisterControllerFactory(TestController.class);
+    }
+
+    @Test
+    public void testFactoryIsUsedForRestore() {
+        CountingFactory factory = new CountingFactory();
+        Conductor.registerControllerFactory(TestController.class, factory);
+
+        Controller controller = new TestController();
+        Controller restored = Controller.newInstance(controller.saveInstanceState());
+
+        assertEquals(1, factory.createdCount);
+        assertTrue(restored instanceof TestController);
+        assertEquals(controller.getInstanceId(), restored.getInstanceId());
+    }
+
+    @Test
+    public void testRestoreWithoutFactory() {
+        Controller controller = new TestController();
+        Controller restored = Controller.newInstance(controller.saveInstanceState());
+
+        assertTrue(restored instanceof TestController);
+        assertEquals(controller.getInstanceId(), restored.getInstanceId());
+    }
+
+    private static class CountingFactory implements ControllerFactory {
+
+        int createdCount;
+
+        @NonNull
+        @Override
+        public Controller newInstance(@NonNull Bundle args) {
+            createdCount++;
+            return new TestController();
+        }
+    }
+
+}
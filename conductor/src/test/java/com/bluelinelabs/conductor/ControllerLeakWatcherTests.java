@@ -0,0 +1,141 @@
+package com.bluelinelabs.conductor;
+
+import android.support.annotation.NonNull;
+
+import com.bluelinelabs.conductor.ControllerLeakWatcher.Leak;
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ControllerLeakWatcherTests {
+
+    private Router router;
+    private ControllerLeakWatcher watcher;
+    private final List<Leak> leaks = new ArrayList<>();
+
+    @Before
+    public void setup() {
+        watcher = new ControllerLeakWatcher(new ControllerLeakWatcher.LeakListener() {
+            @Override
+            public void onLeakDetected(@NonNull Leak leak) {
+                synchronized (leaks) {
+                    leaks.add(leak);
+                }
+            }
+        }, 0);
+        Conductor.setLeakWatcher(watcher);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setLeakWatcher(null);
+    }
+
+    @Test
+    public void testRetainedControllerIsReported() {
+        Controller root = new TestController();
+        Controller leaked = new TestController();
+
+        router.setRoot(RouterTransaction.with(root).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(leaked)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+
+        assertTrue(leaked.isDestroyed());
+        watcher.check();
+
+        Leak controllerLeak = null;
+        synchronized (leaks) {
+            for (Leak leak : leaks) {
+                if (leak.getKind() == Leak.Kind.CONTROLLER && leak.getInstanceId().equals(leaked.getInstanceId())) {
+                    controllerLeak = leak;
+                }
+            }
+        }
+
+        assertNotNull(controllerLeak);
+        assertEquals(TestController.class.getName(), controllerLeak.getControllerClassName());
+
+        List<String> history = controllerLeak.getLifecycleHistory();
+        assertTrue(history.get(0).startsWith("createView@"));
+        assertTrue(history.get(history.size() - 1).startsWith("destroy@"));
+        assertEquals(0, watcher.getWatchedCount());
+    }
+
+    @Test
+    public void testCollectedControllerIsNotReported() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        String instanceId = pushAndPopController();
+
+        watcher.check();
+
+        assertFalse(getReportedControllerIds().contains(instanceId));
+        assertEquals(0, watcher.getWatchedCount());
+    }
+
+    @Test
+    public void testControllersInBackstackAreNotWatched() {
+        Controller root = new TestController();
+        Controller top = new TestController();
+        Controller popped = new TestController();
+
+        router.setRoot(RouterTransaction.with(root).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(top).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        router.pushController(RouterTransaction.with(popped)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+
+        watcher.check();
+
+        // Only the destroyed Controller, which is still referenced here, is reported
+        assertEquals(Collections.singleton(popped.getInstanceId()), getReportedControllerIds());
+    }
+
+    // Keeps the Controller out of the test's own stack frame, so that it can be collected
+    private String pushAndPopController() {
+        Controller controller = new TestController();
+        router.pushController(RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+        router.popCurrentController();
+        return controller.getInstanceId();
+    }
+
+    private Set<String> getReportedControllerIds() {
+        Set<String> instanceIds = new HashSet<>();
+        synchronized (leaks) {
+            for (Leak leak : leaks) {
+                if (leak.getKind() == Leak.Kind.CONTROLLER) {
+                    instanceIds.add(leak.getInstanceId());
+                }
+            }
+        }
+        return instanceIds;
+    }
+
+}
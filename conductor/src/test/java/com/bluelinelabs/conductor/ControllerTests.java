@@ -1,6 +1,7 @@
 package com.bluelinelabs.conductor;
 
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
 import android.os.Bundle;
 import android.view.View;
@@ -20,7 +21,9 @@ import org.robolectric.annotation.Config;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
@@ -71,6 +74,75 @@ public class ControllerTests {
         assertNull(controller.getView());
     }
 
+    @Test
+    public void testBoundedViewRetention() {
+        router.setMaxRetainedViews(2);
+
+        Controller controller1 = new TestController();
+        Controller controller2 = new TestController();
+        Controller controller3 = new TestController();
+
+        for (Controller controller : new Controller[] { controller1, controller2, controller3 }) {
+            controller.setRouter(router);
+            controller.setRetainViewMode(RetainViewMode.RETAIN_BOUNDED);
+            View view = controller.inflate(router.container);
+            ViewUtils.reportAttached(view, true);
+            ViewUtils.reportAttached(view, false);
+        }
+
+        // Only the two most recently detached views are kept
+        assertNull(controller1.getView());
+        assertNotNull(controller2.getView());
+        assertNotNull(controller3.getView());
+
+        // Memory pressure releases the rest
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertNull(controller2.getView());
+        assertNull(controller3.getView());
+    }
+
+    @Test
+    public void testSavedStateCaching() {
+        TestController testController = new TestController();
+        Controller controller = testController;
+        controller.setCachesSavedState(true);
+
+        // Clean controllers reuse their last saved state
+        Bundle firstState = controller.saveInstanceState();
+        assertSame(firstState, controller.saveInstanceState());
+        assertEquals(1, testController.currentCallState.saveInstanceStateCalls);
+
+        controller.invalidateSavedState();
+        assertNotSame(firstState, controller.saveInstanceState());
+        assertEquals(2, testController.currentCallState.saveInstanceStateCalls);
+
+        // Attaching and detaching invalidates it as well
+        controller.setRouter(router);
+        View view = controller.inflate(router.container);
+        ViewUtils.reportAttached(view, true);
+        ViewUtils.reportAttached(view, false);
+        assertNull(controller.getView());
+
+        Bundle detachedState = controller.saveInstanceState();
+        assertEquals(3, testController.currentCallState.saveInstanceStateCalls);
+        assertSame(detachedState, controller.saveInstanceState());
+        assertEquals(3, testController.currentCallState.saveInstanceStateCalls);
+
+        // Changes to children invalidate their parents
+        TestController testParent = new TestController();
+        Controller parent = testParent;
+        parent.setCachesSavedState(true);
+        controller.setParentController(parent);
+
+        parent.saveInstanceState();
+        parent.saveInstanceState();
+        assertEquals(1, testParent.currentCallState.saveInstanceStateCalls);
+
+        controller.invalidateSavedState();
+        parent.saveInstanceState();
+        assertEquals(2, testParent.currentCallState.saveInstanceStateCalls);
+    }
+
     @Test
     public void testActivityResult() {
         TestController controller = new TestController();
@@ -0,0 +1,147 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.AttachFakingFrameLayout;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class RouteTableTests {
+
+    private Router router;
+    private RouteTable routeTable;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+
+        routeTable = new RouteTable()
+                .addRoute("home", HomeController.class)
+                .addRoute("users/{id}", UserController.class, "home")
+                .addRoute("users/new", NewUserController.class, "home")
+                .addRoute("users/{id}/posts/{postId}", PostController.class, "users/{id}");
+    }
+
+    @Test
+    public void testNavigateBuildsParentBackstack() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        assertTrue(routeTable.navigate(router, "myapp://users/42/posts/7?source=push", MockChangeHandler.defaultHandler()));
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertEquals(3, backstack.size());
+        assertEquals(HomeController.class, backstack.get(0).controller().getClass());
+        assertEquals(UserController.class, backstack.get(1).controller().getClass());
+        assertEquals(PostController.class, backstack.get(2).controller().getClass());
+
+        Bundle userArgs = backstack.get(1).controller().getArgs();
+        assertEquals("42", userArgs.getString("id"));
+        assertFalse(userArgs.containsKey("postId"));
+
+        Bundle postArgs = backstack.get(2).controller().getArgs();
+        assertEquals("42", postArgs.getString("id"));
+        assertEquals("7", postArgs.getString("postId"));
+        assertEquals("push", postArgs.getString("source"));
+    }
+
+    @Test
+    public void testLiteralSegmentsTakePrecedence() {
+        List<RouterTransaction> backstack = routeTable.buildBackstack("users/new");
+        assertEquals(2, backstack.size());
+        assertEquals(NewUserController.class, backstack.get(1).controller().getClass());
+
+        backstack = routeTable.buildBackstack("users/new/posts/3");
+        assertEquals(3, backstack.size());
+        assertEquals(PostController.class, backstack.get(2).controller().getClass());
+        assertEquals("new", backstack.get(2).controller().getArgs().getString("id"));
+    }
+
+    @Test
+    public void testUnmatchedLinkLeavesBackstackUntouched() {
+        Controller root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+
+        assertNull(routeTable.buildBackstack("users"));
+        assertFalse(routeTable.navigate(router, "settings/42", null));
+
+        assertEquals(1, router.getBackstackSize());
+        assertEquals(root, router.getBackstack().get(0).controller());
+    }
+
+    @Test
+    public void testInvalidRoutes() {
+        try {
+            routeTable.addRoute("settings", HomeController.class, "account");
+            fail();
+        } catch (IllegalArgumentException ignored) { }
+
+        try {
+            routeTable.addRoute("users/{userId}", UserController.class);
+            fail();
+        } catch (IllegalArgumentException ignored) { }
+
+        try {
+            routeTable.addRoute("posts/{postId}", PostController.class, "users/{id}");
+            fail();
+        } catch (IllegalArgumentException ignored) { }
+    }
+
+    public static class RouteController extends Controller {
+        public RouteController(Bundle args) {
+            super(args);
+        }
+
+        @NonNull
+        @Override
+        protected View onCreateView(@NonNull LayoutInflater inflater, @NonNull ViewGroup container) {
+            return new AttachFakingFrameLayout(inflater.getContext());
+        }
+    }
+
+    public static class HomeController extends RouteController {
+        public HomeController(Bundle args) {
+            super(args);
+        }
+    }
+
+    public static class UserController extends RouteController {
+        public UserController(Bundle args) {
+            super(args);
+        }
+    }
+
+    public static class NewUserController extends RouteController {
+        public NewUserController(Bundle args) {
+            super(args);
+        }
+    }
+
+    public static class PostController extends RouteController {
+        public PostController(Bundle args) {
+            super(args);
+        }
+    }
+
+}
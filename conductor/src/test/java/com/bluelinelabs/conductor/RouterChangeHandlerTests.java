@@ -1,7 +1,13 @@
 package com.bluelinelabs.conductor;
 
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.view.View;
+import android.view.ViewGroup;
 
+import com.bluelinelabs.conductor.ControllerChangeHandler.ControllerChangeListener;
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
+import com.bluelinelabs.conductor.changehandler.SimpleSwapChangeHandler;
 import com.bluelinelabs.conductor.util.ActivityProxy;
 import com.bluelinelabs.conductor.util.ListUtils;
 import com.bluelinelabs.conductor.util.MockChangeHandler;
@@ -236,4 +242,224 @@ public class RouterChangeHandlerTests {
         assertTrue(newController2.changeHandlerHistory.latestIsPush());
     }
 
+    @Test
+    public void testInProgressChanges() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        assertTrue(router.getInProgressChanges().isEmpty());
+
+        PendingChangeHandler handler = new PendingChangeHandler();
+        TestController controller = new TestController();
+        router.pushController(RouterTransaction.with(controller).pushChangeHandler(handler));
+
+        List<InProgressChange> inProgressChanges = router.getInProgressChanges();
+        assertEquals(1, inProgressChanges.size());
+        assertEquals(controller, inProgressChanges.get(0).getTo());
+        assertEquals(handler, inProgressChanges.get(0).getChangeHandler());
+        assertTrue(inProgressChanges.get(0).isPush());
+        assertTrue(inProgressChanges.get(0).getStartUptimeMillis() > 0);
+
+        router.completeInProgressChanges();
+
+        assertTrue(handler.completedImmediately);
+        assertTrue(router.getInProgressChanges().isEmpty());
+        assertTrue(controller.isAttached());
+    }
+
+    @Test
+    public void testCancelInProgressChanges() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        PendingChangeHandler handler = new PendingChangeHandler();
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(handler));
+        router.cancelInProgressChanges();
+
+        assertTrue(handler.aborted);
+        assertTrue(handler.completedImmediately);
+        assertTrue(router.getInProgressChanges().isEmpty());
+    }
+
+    @Test
+    public void testCompleteInProgressChangesKeepsChangesThatCantComplete() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        TestController controller = new TestController();
+        router.pushController(RouterTransaction.with(controller).pushChangeHandler(new StallingChangeHandler()));
+        router.completeInProgressChanges();
+
+        // The handler doesn't support completing immediately, so the change is still running
+        List<InProgressChange> inProgressChanges = router.getInProgressChanges();
+        assertEquals(1, inProgressChanges.size());
+        assertEquals(controller, inProgressChanges.get(0).getTo());
+    }
+
+    @Test
+    public void testCancelInProgressPopThatCantCompleteImmediately() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        TestController topController = new TestController();
+        router.pushController(RouterTransaction.with(topController)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(new StallingChangeHandler()));
+        ViewGroup container = (ViewGroup)topController.getView().getParent();
+
+        CompletionCountingListener changeListener = new CompletionCountingListener();
+        router.addChangeListener(changeListener);
+        router.popCurrentController();
+        assertEquals(1, router.getInProgressChanges().size());
+
+        router.cancelInProgressChanges();
+
+        assertTrue(router.getInProgressChanges().isEmpty());
+        assertEquals(1, changeListener.completedChanges);
+        assertEquals(1, container.getChildCount());
+        assertFalse(container.getChildAt(0) == topController.getView());
+    }
+
+    @Test
+    public void testCancelInProgressSimpleSwapPush() {
+        // Without a window, SimpleSwapChangeHandler waits for the container to be attached before completing
+        ActivityProxy activityProxy = new ActivityProxy().create(null);
+        Router detachedRouter = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        CompletionCountingListener changeListener = new CompletionCountingListener();
+        detachedRouter.addChangeListener(changeListener);
+
+        TestController topController = new TestController();
+        detachedRouter.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(new SimpleSwapChangeHandler()));
+        detachedRouter.pushController(RouterTransaction.with(topController).pushChangeHandler(new SimpleSwapChangeHandler()));
+        assertEquals(1, detachedRouter.getInProgressChanges().size());
+
+        detachedRouter.cancelInProgressChanges();
+
+        assertTrue(detachedRouter.getInProgressChanges().isEmpty());
+        assertEquals(2, changeListener.completedChanges);
+        assertEquals(1, activityProxy.getView().getChildCount());
+        assertEquals(topController.getView(), activityProxy.getView().getChildAt(0));
+    }
+
+    @Test
+    public void testCancelInProgressAnimatorPush() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        CompletionCountingListener changeListener = new CompletionCountingListener();
+        router.addChangeListener(changeListener);
+
+        // The new view is never laid out here, so the animation waits for a pre-draw that doesn't come
+        TestController topController = new TestController();
+        router.pushController(RouterTransaction.with(topController).pushChangeHandler(new FadeChangeHandler()));
+        assertEquals(1, router.getInProgressChanges().size());
+
+        router.cancelInProgressChanges();
+
+        assertTrue(router.getInProgressChanges().isEmpty());
+        assertEquals(1, changeListener.completedChanges);
+        ViewGroup container = (ViewGroup)topController.getView().getParent();
+        assertEquals(1, container.getChildCount());
+    }
+
+    @Test
+    public void testInProgressChangesAreReleasedWithContainer() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(new PendingChangeHandler()));
+        assertEquals(1, router.getInProgressChanges().size());
+
+        router.prepareForContainerRemoval();
+
+        assertTrue(router.getInProgressChanges().isEmpty());
+    }
+
+    @Test
+    public void testRepeatedCompletionDoesNotCompleteLaterChanges() {
+        router.setRoot(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        RepeatCompletingChangeHandler repeatingHandler = new RepeatCompletingChangeHandler();
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(repeatingHandler));
+        assertTrue(router.getInProgressChanges().isEmpty());
+
+        TestController controller = new TestController();
+        router.pushController(RouterTransaction.with(controller).pushChangeHandler(new PendingChangeHandler()));
+        assertEquals(1, router.getInProgressChanges().size());
+
+        repeatingHandler.changeListener.onChangeCompleted();
+
+        assertEquals(1, router.getInProgressChanges().size());
+        assertEquals(controller, router.getInProgressChanges().get(0).getTo());
+    }
+
+    // Never completes on its own and doesn't override completeImmediately(), like TransitionChangeHandler
+    public static class StallingChangeHandler extends ControllerChangeHandler {
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            if (to != null && to.getParent() == null) {
+                container.addView(to);
+            }
+        }
+
+        @Override
+        public boolean isReusable() {
+            return true;
+        }
+    }
+
+    private static class CompletionCountingListener implements ControllerChangeListener {
+
+        int completedChanges;
+
+        @Override
+        public void onChangeStarted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) { }
+
+        @Override
+        public void onChangeCompleted(@Nullable Controller to, @Nullable Controller from, boolean isPush, @NonNull ViewGroup container, @NonNull ControllerChangeHandler handler) {
+            completedChanges++;
+        }
+    }
+
+    public static class PendingChangeHandler extends ControllerChangeHandler {
+
+        ControllerChangeCompletedListener changeListener;
+        boolean completedImmediately;
+        boolean aborted;
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            if (to != null) {
+                container.addView(to);
+            }
+            this.changeListener = changeListener;
+        }
+
+        @Override
+        public void completeImmediately() {
+            completedImmediately = true;
+            changeListener.onChangeCompleted();
+        }
+
+        @Override
+        public void onAbortPush(@NonNull ControllerChangeHandler newHandler, @Nullable Controller newTop) {
+            aborted = true;
+        }
+
+        @Override
+        public boolean isReusable() {
+            return true;
+        }
+    }
+
+    // Reports completion right away and keeps the listener around, as some handlers report it a second time later
+    public static class RepeatCompletingChangeHandler extends ControllerChangeHandler {
+
+        ControllerChangeCompletedListener changeListener;
+
+        @Override
+        public void performChange(@NonNull ViewGroup container, @Nullable View from, @Nullable View to, boolean isPush, @NonNull ControllerChangeCompletedListener changeListener) {
+            if (to != null) {
+                container.addView(to);
+            }
+            this.changeListener = changeListener;
+            changeListener.onChangeCompleted();
+        }
+
+        @Override
+        public boolean isReusable() {
+            return true;
+        }
+    }
+
 }
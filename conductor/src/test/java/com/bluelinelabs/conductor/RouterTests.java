@@ -1,5 +1,12 @@
 package com.bluelinelabs.conductor;
 
+import android.content.ComponentCallbacks2;
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.changehandler.FadeChangeHandler;
 import com.bluelinelabs.conductor.util.ActivityProxy;
 import com.bluelinelabs.conductor.util.ListUtils;
 import com.bluelinelabs.conductor.util.MockChangeHandler;
@@ -11,12 +18,15 @@ import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(manifest = Config.NONE)
@@ -70,6 +80,37 @@ public class RouterTests {
         assertNull(router.getControllerWithInstanceId("fake id"));
     }
 
+    @Test
+    public void testGetByInstanceIdInChildRouters() {
+        TestController parent = new TestController();
+        TestController child = new TestController();
+        TestController sibling = new TestController();
+
+        router.pushController(RouterTransaction.with(parent)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1));
+        childRouter.pushController(RouterTransaction.with(child)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Router siblingRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_2));
+        siblingRouter.pushController(RouterTransaction.with(sibling)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(child, router.getControllerWithInstanceId(child.getInstanceId()));
+        assertEquals(child, childRouter.getControllerWithInstanceId(child.getInstanceId()));
+        assertNull(siblingRouter.getControllerWithInstanceId(child.getInstanceId()));
+        assertEquals(sibling, router.getControllerWithInstanceId(sibling.getInstanceId()));
+
+        childRouter.popCurrentController();
+
+        assertNull(router.getControllerWithInstanceId(child.getInstanceId()));
+        assertNull(childRouter.getControllerWithInstanceId(child.getInstanceId()));
+    }
+
     @Test
     public void testGetByTag() {
         String controller1Tag = "controller1";
@@ -218,9 +259,9 @@ public class RouterTests {
         assertEquals(middleTransaction, fetchedBackstack.get(1));
         assertEquals(topTransaction, fetchedBackstack.get(2));
 
-        assertEquals(router, rootTransaction.controller.getRouter());
-        assertEquals(router, middleTransaction.controller.getRouter());
-        assertEquals(router, topTransaction.controller.getRouter());
+        assertEquals(router, rootTransaction.controller().getRouter());
+        assertEquals(router, middleTransaction.controller().getRouter());
+        assertEquals(router, topTransaction.controller().getRouter());
     }
 
     @Test
@@ -232,8 +273,8 @@ public class RouterTests {
         router.pushController(oldTopTransaction);
         assertEquals(2, router.getBackstackSize());
 
-        assertTrue(oldRootTransaction.controller.isAttached());
-        assertTrue(oldTopTransaction.controller.isAttached());
+        assertTrue(oldRootTransaction.controller().isAttached());
+        assertTrue(oldTopTransaction.controller().isAttached());
 
         RouterTransaction rootTransaction = RouterTransaction.with(new TestController());
         RouterTransaction middleTransaction = RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.noRemoveViewOnPushHandler());
@@ -249,11 +290,130 @@ public class RouterTests {
         assertEquals(middleTransaction, fetchedBackstack.get(1));
         assertEquals(topTransaction, fetchedBackstack.get(2));
 
-        assertFalse(oldRootTransaction.controller.isAttached());
-        assertFalse(oldTopTransaction.controller.isAttached());
-        assertTrue(rootTransaction.controller.isAttached());
-        assertTrue(middleTransaction.controller.isAttached());
-        assertTrue(topTransaction.controller.isAttached());
+        assertFalse(oldRootTransaction.controller().isAttached());
+        assertFalse(oldTopTransaction.controller().isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertTrue(middleTransaction.controller().isAttached());
+        assertTrue(topTransaction.controller().isAttached());
+    }
+
+    @Test
+    public void testSetBackstackOnlyTouchesChangedEntries() {
+        TestController rootController = new TestController();
+        TestController topController = new TestController();
+        TestController newTopController = new TestController();
+        TestController removedController = new TestController();
+
+        RouterTransaction rootTransaction = RouterTransaction.with(rootController);
+        RouterTransaction topTransaction = RouterTransaction.with(topController);
+        RouterTransaction removedTransaction = RouterTransaction.with(removedController);
+
+        router.setBackstack(ListUtils.listOf(removedTransaction, rootTransaction, topTransaction), null);
+
+        assertEquals(1, topController.currentCallState.createViewCalls);
+        assertEquals(1, topController.currentCallState.attachCalls);
+
+        RouterTransaction newTopTransaction = RouterTransaction.with(newTopController).pushChangeHandler(MockChangeHandler.noRemoveViewOnPushHandler());
+        router.setBackstack(ListUtils.listOf(rootTransaction, topTransaction, newTopTransaction), null);
+
+        assertEquals(3, router.getBackstackSize());
+        assertTrue(removedController.isDestroyed());
+        assertFalse(rootController.isDestroyed());
+
+        // The shared visible entry was left in place rather than being transitioned out and back in
+        assertEquals(1, topController.currentCallState.createViewCalls);
+        assertEquals(1, topController.currentCallState.attachCalls);
+        assertEquals(0, topController.currentCallState.detachCalls);
+        assertTrue(topController.isAttached());
+        assertTrue(newTopController.isAttached());
+        assertEquals(router, newTopController.getRouter());
+    }
+
+    @Test
+    public void testSetBackstackAttachesNewTransactionsForExistingControllers() {
+        TestController controller = new TestController();
+        router.setRoot(RouterTransaction.with(controller).tag("old"));
+
+        RouterTransaction newTransaction = RouterTransaction.with(controller).tag("new");
+        router.setBackstack(ListUtils.listOf(newTransaction), null);
+
+        assertEquals(controller, router.getControllerWithTag("new"));
+        assertNull(router.getControllerWithTag("old"));
+
+        try {
+            newTransaction.tag("changed");
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(controller, router.getControllerWithTag("new"));
+        }
+    }
+
+    @Test
+    public void testBackstackTransaction() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+        TestController controller3 = new TestController();
+        TestController controller4 = new TestController();
+        TestController controller5 = new TestController();
+        TestController transientController = new TestController();
+
+        router.pushController(RouterTransaction.with(controller1).tag("1"));
+        router.pushController(RouterTransaction.with(controller2));
+        router.pushController(RouterTransaction.with(controller3));
+
+        router.beginTransaction()
+                .popCurrentController()
+                .popCurrentController()
+                .pushController(RouterTransaction.with(transientController))
+                .popCurrentController()
+                .pushController(RouterTransaction.with(controller4))
+                .pushController(RouterTransaction.with(controller5))
+                .commit();
+
+        List<RouterTransaction> backstack = router.getBackstack();
+        assertEquals(3, backstack.size());
+        assertEquals(controller1, backstack.get(0).controller());
+        assertEquals(controller4, backstack.get(1).controller());
+        assertEquals(controller5, backstack.get(2).controller());
+
+        assertTrue(controller2.isDestroyed());
+        assertTrue(controller3.isDestroyed());
+        assertTrue(transientController.isDestroyed());
+
+        // Only the final visible controller had its view created
+        assertEquals(0, transientController.currentCallState.createViewCalls);
+        assertEquals(0, controller4.currentCallState.createViewCalls);
+        assertEquals(1, controller5.currentCallState.createViewCalls);
+        assertTrue(controller5.isAttached());
+
+        router.beginTransaction()
+                .popToTag("1")
+                .commit();
+
+        assertEquals(1, router.getBackstackSize());
+        assertTrue(controller1.isAttached());
+        assertTrue(controller4.isDestroyed());
+    }
+
+    @Test
+    public void testBackstackTransactionFailsAfterOutsideChange() {
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+
+        router.pushController(RouterTransaction.with(controller1));
+
+        BackstackTransaction transaction = router.beginTransaction()
+                .pushController(RouterTransaction.with(new TestController()));
+
+        router.pushController(RouterTransaction.with(controller2));
+
+        try {
+            transaction.commit();
+            fail();
+        } catch (IllegalStateException ignored) { }
+
+        assertEquals(2, router.getBackstackSize());
+        assertEquals(controller2, router.getBackstack().get(1).controller());
     }
 
     @Test
@@ -290,8 +450,8 @@ public class RouterTests {
 
         assertEquals(2, router.getBackstackSize());
 
-        assertTrue(rootTransaction.controller.isAttached());
-        assertTrue(topTransaction.controller.isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertTrue(topTransaction.controller().isAttached());
 
         List<RouterTransaction> fetchedBackstack = router.getBackstack();
         assertEquals(rootTransaction, fetchedBackstack.get(0));
@@ -307,9 +467,210 @@ public class RouterTests {
         assertEquals(rootTransaction, fetchedBackstack.get(0));
         assertEquals(newTopTransaction, fetchedBackstack.get(1));
 
-        assertTrue(rootTransaction.controller.isAttached());
-        assertFalse(topTransaction.controller.isAttached());
-        assertTrue(newTopTransaction.controller.isAttached());
+        assertTrue(rootTransaction.controller().isAttached());
+        assertFalse(topTransaction.controller().isAttached());
+        assertTrue(newTopTransaction.controller().isAttached());
+    }
+
+    @Test
+    public void testPrefetchedViewIsReusedOnPush() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+
+        TestController controller = new TestController();
+        RouterTransaction transaction = RouterTransaction.with(controller)
+                .pushChangeHandler(MockChangeHandler.defaultHandler());
+
+        router.prefetch(transaction);
+
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertNotNull(controller.getView());
+        assertNull(controller.getView().getParent());
+        assertFalse(controller.isAttached());
+
+        router.pushController(transaction);
+
+        assertEquals(1, controller.currentCallState.createViewCalls);
+        assertTrue(controller.isAttached());
+    }
+
+    @Test
+    public void testPrefetchPoolIsBounded() {
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.setMaxPrefetchedViews(1);
+
+        TestController controller1 = new TestController();
+        TestController controller2 = new TestController();
+
+        router.prefetch(RouterTransaction.with(controller1));
+        router.prefetch(RouterTransaction.with(controller2));
+
+        assertNull(controller1.getView());
+        assertNotNull(controller2.getView());
+        assertFalse(controller1.isDestroyed());
+
+        router.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        assertNull(controller2.getView());
+        assertFalse(controller2.isDestroyed());
+    }
+
+    @Test
+    public void testRouterLifecycleListener() {
+        final List<Controller> attached = new ArrayList<>();
+        final List<Controller> destroyed = new ArrayList<>();
+        router.addLifecycleListener(new Controller.LifecycleListener() {
+            @Override
+            public void postAttach(@NonNull Controller controller, @NonNull View view) {
+                attached.add(controller);
+            }
+
+            @Override
+            public void postDestroy(@NonNull Controller controller) {
+                destroyed.add(controller);
+            }
+        });
+
+        TestController parent = new TestController();
+        TestController child = new TestController();
+
+        router.pushController(RouterTransaction.with(parent)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.CHILD_VIEW_ID_1));
+        childRouter.pushController(RouterTransaction.with(child)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        assertEquals(ListUtils.listOf(parent, child), attached);
+
+        childRouter.popCurrentController();
+
+        assertEquals(ListUtils.listOf(child), destroyed);
+        assertTrue(childRouter.destroyingControllers.isEmpty());
+    }
+
+    @Test
+    public void testRestoredBuriedControllersAreCreatedLazily() {
+        List<RouterTransaction> backstack = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            backstack.add(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler()));
+        }
+        router.setBackstack(backstack, MockChangeHandler.defaultHandler());
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router restoredRouter = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        restoredRouter.restoreInstanceState(savedState);
+
+        List<RouterTransaction> restoredBackstack = restoredRouter.getBackstack();
+        assertNull(restoredBackstack.get(0).peekController());
+        assertNull(restoredBackstack.get(1).peekController());
+        assertNotNull(restoredBackstack.get(2).peekController());
+
+        String buriedInstanceId = backstack.get(1).controller().getInstanceId();
+        Controller buriedController = restoredRouter.getControllerWithInstanceId(buriedInstanceId);
+        assertNotNull(buriedController);
+        assertEquals(buriedInstanceId, buriedController.getInstanceId());
+        assertEquals(restoredRouter, buriedController.getRouter());
+        assertNull(restoredBackstack.get(0).peekController());
+    }
+
+    @Test
+    public void testDeferredTransaction() {
+        RouterTransaction deferredTransaction = RouterTransaction.deferred(TestController.class, null)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler());
+        RouterTransaction topTransaction = RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler());
+
+        router.setBackstack(ListUtils.listOf(deferredTransaction, topTransaction), MockChangeHandler.defaultHandler());
+
+        assertNull(deferredTransaction.peekController());
+        assertEquals(2, router.getBackstackSize());
+
+        router.popCurrentController();
+
+        Controller controller = deferredTransaction.peekController();
+        assertNotNull(controller);
+        assertTrue(controller instanceof TestController);
+        assertEquals(router, controller.getRouter());
+        assertNotNull(controller.getView());
+    }
+
+    @Test
+    public void testHibernationDepth() {
+        router.setHibernationDepth(2);
+
+        List<RouterTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            RouterTransaction transaction = RouterTransaction.with(new TestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler());
+            transactions.add(transaction);
+            router.pushController(transaction);
+        }
+
+        assertNull(transactions.get(0).peekController());
+        assertNull(transactions.get(1).peekController());
+        assertNotNull(transactions.get(2).peekController());
+        assertNotNull(transactions.get(3).peekController());
+
+        String hibernatedInstanceId = transactions.get(0).instanceId();
+        Controller hibernatedController = router.getControllerWithInstanceId(hibernatedInstanceId);
+        assertNotNull(hibernatedController);
+        assertEquals(hibernatedInstanceId, hibernatedController.getInstanceId());
+        assertEquals(router, hibernatedController.getRouter());
+
+        router.popCurrentController();
+        router.popCurrentController();
+
+        Controller controller = transactions.get(1).peekController();
+        assertNotNull(controller);
+        assertEquals(transactions.get(1).instanceId(), controller.getInstanceId());
+        assertTrue(controller.isAttached());
+    }
+
+    @Test
+    public void testHibernatedTransactionSurvivesSaveAndRestore() {
+        router.setHibernationDepth(1);
+
+        Controller buriedController = new TestController();
+        buriedController.overridePopHandler(new FadeChangeHandler());
+        RouterTransaction buriedTransaction = RouterTransaction.with(buriedController)
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler());
+        router.pushController(buriedTransaction);
+        router.pushController(RouterTransaction.with(new TestController())
+                .pushChangeHandler(MockChangeHandler.defaultHandler())
+                .popChangeHandler(MockChangeHandler.defaultHandler()));
+
+        String buriedInstanceId = buriedController.getInstanceId();
+        assertNull(buriedTransaction.peekController());
+        assertTrue(buriedTransaction.popChangeHandler() instanceof FadeChangeHandler);
+        assertTrue(buriedTransaction.savedStateContains(buriedInstanceId));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        Router restoredRouter = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+        restoredRouter.restoreInstanceState(savedState);
+
+        RouterTransaction restoredTransaction = restoredRouter.getBackstack().get(0);
+        assertNull(restoredTransaction.peekController());
+        assertEquals(buriedInstanceId, restoredTransaction.instanceId());
+        assertTrue(restoredTransaction.popChangeHandler() instanceof FadeChangeHandler);
+
+        Controller restoredController = restoredRouter.getControllerWithInstanceId(buriedInstanceId);
+        assertNotNull(restoredController);
+        assertEquals(buriedInstanceId, restoredController.getInstanceId());
+        assertTrue(restoredController.getOverriddenPopHandler() instanceof FadeChangeHandler);
     }
 
 }
@@ -0,0 +1,129 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+import android.support.annotation.NonNull;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SavedStateSizeTests {
+
+    private static final int LARGE_STATE_SIZE = 10000;
+
+    private Router router;
+
+    @Before
+    public void setup() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        router = Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setSavedStateSizeWarning(0, null);
+    }
+
+    @Test
+    public void testSizesAreBrokenDown() {
+        Controller root = new TestController();
+        router.setRoot(RouterTransaction.with(root).tag("root"));
+        pushLargeChild(root);
+
+        List<SavedStateSize> sizes = router.getSavedStateSizes();
+        assertEquals(1, sizes.size());
+
+        SavedStateSize rootSize = sizes.get(0);
+        assertEquals(TestController.class.getName(), rootSize.getControllerClassName());
+        assertEquals(root.getInstanceId(), rootSize.getInstanceId());
+        assertEquals("root", rootSize.getTag());
+        assertTrue(rootSize.getChildRoutersBytes() > LARGE_STATE_SIZE);
+        assertTrue(rootSize.getOwnBytes() < LARGE_STATE_SIZE);
+        assertTrue(rootSize.getTotalBytes() >= rootSize.getArgsBytes() + rootSize.getViewStateBytes() + rootSize.getSavedStateBytes()
+                + rootSize.getChildRoutersBytes());
+        assertEquals(1, rootSize.getChildren().size());
+
+        SavedStateSize childSize = rootSize.getChildren().get(0);
+        assertEquals(LargeStateController.class.getName(), childSize.getControllerClassName());
+        assertTrue(childSize.getSavedStateBytes() > LARGE_STATE_SIZE);
+        assertTrue(childSize.getArgsBytes() < LARGE_STATE_SIZE);
+        assertEquals(0, childSize.getChildRoutersBytes());
+    }
+
+    @Test
+    public void testThresholdIsCheckedOnSave() {
+        final List<SavedStateSize> reported = new ArrayList<>();
+        Conductor.setSavedStateSizeWarning(LARGE_STATE_SIZE, new SavedStateSize.OnThresholdExceededListener() {
+            @Override
+            public void onThresholdExceeded(@NonNull Router router, @NonNull SavedStateSize size) {
+                reported.add(size);
+            }
+        });
+
+        Controller root = new TestController();
+        router.setRoot(RouterTransaction.with(root));
+        Controller child = pushLargeChild(root);
+
+        router.saveInstanceState(new Bundle());
+
+        assertEquals(1, reported.size());
+        assertEquals(child.getInstanceId(), reported.get(0).getInstanceId());
+    }
+
+    @Test
+    public void testMeasuringLeavesViewStateUnsaved() {
+        ViewStateCountingController root = new ViewStateCountingController();
+        router.setRoot(RouterTransaction.with(root).pushChangeHandler(MockChangeHandler.defaultHandler()));
+
+        router.getSavedStateSizes();
+        assertEquals(1, root.saveViewStateCalls);
+
+        // The view state still has to be saved once the view is released, as it may have changed since
+        router.pushController(RouterTransaction.with(new TestController()).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        assertEquals(2, root.saveViewStateCalls);
+    }
+
+    private Controller pushLargeChild(@NonNull Controller parent) {
+        Controller child = new LargeStateController();
+        Router childRouter = parent.getChildRouter((ViewGroup)parent.getView().findViewById(TestController.VIEW_ID));
+        childRouter.setRoot(RouterTransaction.with(child).pushChangeHandler(MockChangeHandler.defaultHandler()));
+        return child;
+    }
+
+    public static class LargeStateController extends TestController {
+        @Override
+        protected void onSaveInstanceState(@NonNull Bundle outState) {
+            super.onSaveInstanceState(outState);
+            outState.putByteArray("LargeStateController.data", new byte[LARGE_STATE_SIZE]);
+        }
+    }
+
+    public static class ViewStateCountingController extends TestController {
+
+        int saveViewStateCalls;
+
+        @Override
+        protected void onSaveViewState(@NonNull View view, @NonNull Bundle outState) {
+            super.onSaveViewState(view, outState);
+            saveViewStateCalls++;
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.bluelinelabs.conductor;
+
+import android.os.Bundle;
+
+import com.bluelinelabs.conductor.util.ActivityProxy;
+import com.bluelinelabs.conductor.util.MockChangeHandler;
+import com.bluelinelabs.conductor.util.TestController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class SavedStateStoreTests {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File directory;
+
+    @Before
+    public void setup() throws IOException {
+        directory = temporaryFolder.newFolder();
+    }
+
+    @After
+    public void teardown() {
+        Conductor.setSavedStateStore(null, 0);
+    }
+
+    @Test
+    public void testFileStoreRoundTrip() throws IOException {
+        SavedStateStore store = new FileSavedStateStore(directory);
+        byte[] data = new byte[] { 1, 2, 3, 4, 5 };
+
+        String token = store.write(data);
+        assertArrayEquals(data, store.read(token));
+
+        store.delete(token);
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void testFileStoreDeletesOldEntries() throws IOException {
+        FileSavedStateStore store = new FileSavedStateStore(directory);
+        String oldToken = store.write(new byte[] { 1 });
+        String newToken = store.write(new byte[] { 2 });
+
+        assertTrue(new File(directory, oldToken).setLastModified(System.currentTimeMillis() - 60000));
+        store.deleteEntriesOlderThan(30000);
+
+        assertEquals(1, directory.listFiles().length);
+        assertArrayEquals(new byte[] { 2 }, store.read(newToken));
+    }
+
+    @Test
+    public void testBuriedEntriesAreSpilled() {
+        Conductor.setSavedStateStore(new FileSavedStateStore(directory), 0);
+
+        Router router = createRouter();
+        List<RouterTransaction> backstack = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            backstack.add(RouterTransaction.with(new TestController())
+                    .pushChangeHandler(MockChangeHandler.defaultHandler())
+                    .popChangeHandler(MockChangeHandler.defaultHandler())
+                    .tag(String.valueOf(i)));
+        }
+        router.setBackstack(backstack, MockChangeHandler.defaultHandler());
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        assertNotNull(savedState.getString("Router.backstack.spilledToken"));
+        assertEquals(1, directory.listFiles().length);
+
+        Router restoredRouter = createRouter();
+        restoredRouter.restoreInstanceState(savedState);
+
+        List<RouterTransaction> restoredBackstack = restoredRouter.getBackstack();
+        assertEquals(3, restoredBackstack.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(String.valueOf(i), restoredBackstack.get(i).tag());
+            assertEquals(backstack.get(i).controller().getInstanceId(), restoredBackstack.get(i).controller().getInstanceId());
+        }
+
+        // Saving again replaces the previous file
+        Bundle secondSavedState = new Bundle();
+        restoredRouter.saveInstanceState(secondSavedState);
+        assertEquals(1, directory.listFiles().length);
+        assertFalse(savedState.getString("Router.backstack.spilledToken").equals(secondSavedState.getString("Router.backstack.spilledToken")));
+    }
+
+    @Test
+    public void testSmallStateIsNotSpilled() {
+        Conductor.setSavedStateStore(new FileSavedStateStore(directory), Integer.MAX_VALUE);
+
+        Router router = createRouter();
+        router.setRoot(RouterTransaction.with(new TestController()));
+        router.pushController(RouterTransaction.with(new TestController()));
+
+        Bundle savedState = new Bundle();
+        router.saveInstanceState(savedState);
+
+        assertNull(savedState.getString("Router.backstack.spilledToken"));
+        assertTrue(directory.listFiles() == null || directory.listFiles().length == 0);
+    }
+
+    private Router createRouter() {
+        ActivityProxy activityProxy = new ActivityProxy().create(null).start().resume();
+        return Conductor.attachRouter(activityProxy.getActivity(), activityProxy.getView(), null);
+    }
+
+}